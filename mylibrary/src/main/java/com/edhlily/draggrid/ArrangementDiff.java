@@ -0,0 +1,75 @@
+package com.edhlily.draggrid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 新旧排列之间的差异，按id对比，可以在后台线程计算
+ */
+class ArrangementDiff {
+    /**
+     * 每个Item的当前位置占用cells中的几个值
+     */
+    static final int CELL_SIZE = 5;
+
+    /**
+     * 需要移除的id
+     */
+    final List<Long> removed = new ArrayList<>();
+
+    /**
+     * 需要新加入的Item
+     */
+    final List<DragGridLayout.Item> inserted = new ArrayList<>();
+
+    /**
+     * 位置或者跨度发生变化的Item
+     */
+    final List<DragGridLayout.Item> changed = new ArrayList<>();
+
+    /**
+     * 计算差异时的排列版本，应用时版本不一致说明排列在计算期间被修改过
+     */
+    final int version;
+
+    private ArrangementDiff(int version) {
+        this.version = version;
+    }
+
+    boolean isEmpty() {
+        return removed.isEmpty() && inserted.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * @param ids     当前每个Item的id
+     * @param cells   当前每个Item的 row, col, rowSpan, colSpan, page，每{@link #CELL_SIZE}个一组
+     * @param items   新的排列
+     * @param version 当前排列的版本
+     */
+    static ArrangementDiff calculate(long[] ids, int[] cells, List<DragGridLayout.Item> items, int version) {
+        ArrangementDiff diff = new ArrangementDiff(version);
+        Map<Long, Integer> current = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            current.put(ids[i], i);
+        }
+        for (DragGridLayout.Item item : items) {
+            Integer index = current.remove(item.getId());
+            if (index == null) {
+                diff.inserted.add(item);
+                continue;
+            }
+            int offset = index * CELL_SIZE;
+            if (cells[offset] != item.getRow()
+                    || cells[offset + 1] != item.getCol()
+                    || cells[offset + 2] != item.getRowSpan()
+                    || cells[offset + 3] != item.getColSpan()
+                    || (item.hasPage() && cells[offset + 4] != item.getPage())) {
+                diff.changed.add(item);
+            }
+        }
+        diff.removed.addAll(current.keySet());
+        return diff;
+    }
+}
@@ -0,0 +1,215 @@
+package com.edhlily.draggrid;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按格子坐标索引Item的四叉树
+ * <p>
+ * 每个Item放在能完整包含它的最小节点中，查询区域或者某个格子时只访问相交的节点。
+ * 坐标不能为负，超出根节点范围时根节点自动扩大
+ */
+class CellQuadTree {
+    /**
+     * 节点中超过多少个Item时拆分
+     */
+    private static final int NODE_CAPACITY = 8;
+
+    /**
+     * 根节点的初始边长(格子数)
+     */
+    private static final int INITIAL_SIZE = 64;
+
+    static final class Entry {
+        final long id;
+        int row;
+        int col;
+        int rowSpan;
+        int colSpan;
+        private Node node;
+
+        private Entry(long id) {
+            this.id = id;
+        }
+
+        boolean intersects(int row, int col, int rowSpan, int colSpan) {
+            return this.row < row + rowSpan && row < this.row + this.rowSpan
+                    && this.col < col + colSpan && col < this.col + this.colSpan;
+        }
+    }
+
+    private static final class Node {
+        final int row;
+        final int col;
+        final int size;
+        Node[] children;
+        final List<Entry> entries = new ArrayList<>();
+
+        Node(int row, int col, int size) {
+            this.row = row;
+            this.col = col;
+            this.size = size;
+        }
+
+        boolean contains(Entry e) {
+            return e.row >= row && e.col >= col && e.row + e.rowSpan <= row + size && e.col + e.colSpan <= col + size;
+        }
+
+        boolean intersects(int row, int col, int rowSpan, int colSpan) {
+            return this.row < row + rowSpan && row < this.row + size
+                    && this.col < col + colSpan && col < this.col + size;
+        }
+    }
+
+    private Node root = new Node(0, 0, INITIAL_SIZE);
+    private final Map<Long, Entry> entries = new HashMap<>();
+
+    int size() {
+        return entries.size();
+    }
+
+    Entry get(long id) {
+        return entries.get(id);
+    }
+
+    void clear() {
+        root = new Node(0, 0, INITIAL_SIZE);
+        entries.clear();
+    }
+
+    /**
+     * 加入或者移动Item
+     */
+    void put(long id, int row, int col, int rowSpan, int colSpan) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            entry = new Entry(id);
+            entries.put(id, entry);
+        } else {
+            entry.node.entries.remove(entry);
+        }
+        entry.row = Math.max(0, row);
+        entry.col = Math.max(0, col);
+        entry.rowSpan = Math.max(1, rowSpan);
+        entry.colSpan = Math.max(1, colSpan);
+        while (!root.contains(entry)) {
+            Node newRoot = new Node(0, 0, root.size * 2);
+            newRoot.children = new Node[]{
+                    root,
+                    new Node(0, root.size, root.size),
+                    new Node(root.size, 0, root.size),
+                    new Node(root.size, root.size, root.size)
+            };
+            root = newRoot;
+        }
+        insert(root, entry);
+    }
+
+    void remove(long id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            entry.node.entries.remove(entry);
+        }
+    }
+
+    /**
+     * 查询和区域相交的Item
+     */
+    void query(int row, int col, int rowSpan, int colSpan, List<Entry> out) {
+        query(root, row, col, rowSpan, colSpan, out);
+    }
+
+    /**
+     * 区域内除了exclude之外是否没有Item
+     */
+    boolean isFree(int row, int col, int rowSpan, int colSpan, long exclude) {
+        return row >= 0 && col >= 0 && findFirst(root, row, col, rowSpan, colSpan, exclude) == null;
+    }
+
+    /**
+     * 包含某个格子的Item
+     *
+     * @param exclude 忽略的Item
+     */
+    Entry findAt(int row, int col, long exclude) {
+        return findFirst(root, row, col, 1, 1, exclude);
+    }
+
+    private void insert(Node node, Entry entry) {
+        while (node.children != null) {
+            Node child = childContaining(node, entry);
+            if (child == null) {
+                break;
+            }
+            node = child;
+        }
+        node.entries.add(entry);
+        entry.node = node;
+        if (node.children == null && node.entries.size() > NODE_CAPACITY && node.size > 1) {
+            split(node);
+        }
+    }
+
+    private void split(Node node) {
+        int half = node.size / 2;
+        node.children = new Node[]{
+                new Node(node.row, node.col, half),
+                new Node(node.row, node.col + half, half),
+                new Node(node.row + half, node.col, half),
+                new Node(node.row + half, node.col + half, half)
+        };
+        List<Entry> old = new ArrayList<>(node.entries);
+        node.entries.clear();
+        for (Entry e : old) {
+            Node child = childContaining(node, e);
+            Node target = child == null ? node : child;
+            target.entries.add(e);
+            e.node = target;
+        }
+    }
+
+    private Node childContaining(Node node, Entry entry) {
+        for (Node child : node.children) {
+            if (child.contains(entry)) {
+                return child;
+            }
+        }
+        return null;
+    }
+
+    private void query(Node node, int row, int col, int rowSpan, int colSpan, List<Entry> out) {
+        for (Entry e : node.entries) {
+            if (e.intersects(row, col, rowSpan, colSpan)) {
+                out.add(e);
+            }
+        }
+        if (node.children != null) {
+            for (Node child : node.children) {
+                if (child.intersects(row, col, rowSpan, colSpan)) {
+                    query(child, row, col, rowSpan, colSpan, out);
+                }
+            }
+        }
+    }
+
+    private Entry findFirst(Node node, int row, int col, int rowSpan, int colSpan, long exclude) {
+        for (Entry e : node.entries) {
+            if (e.id != exclude && e.intersects(row, col, rowSpan, colSpan)) {
+                return e;
+            }
+        }
+        if (node.children != null) {
+            for (Node child : node.children) {
+                if (child.intersects(row, col, rowSpan, colSpan)) {
+                    Entry found = findFirst(child, row, col, rowSpan, colSpan, exclude);
+                    if (found != null) {
+                        return found;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,199 @@
+package com.edhlily.draggrid;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 紧凑排列使用的有序Item列表
+ * <p>
+ * 按(页, 紧凑方向上的位置, 另一方向上的位置)排序，Item位置变化时只移动这一个Item，
+ * 不需要每次紧凑排列都重新排序。紧凑排列时用二分查找定位到所在页，变化位置之前的Item只更新skyline
+ */
+final class CompactionIndex<T> {
+
+    interface MoveFilter<T> {
+        /**
+         * 紧凑排列时Item是否可以移到target
+         */
+        boolean canMove(Entry<T> entry, int target);
+    }
+
+    static final class Entry<T> {
+        final T item;
+        int page;
+        int row;
+        int col;
+        int rowSpan;
+        int colSpan;
+
+        /**
+         * 紧凑排列后紧凑方向上的位置
+         */
+        int target;
+
+        private Entry(T item) {
+            this.item = item;
+        }
+    }
+
+    private boolean vertical = true;
+
+    private final List<Entry<T>> entries = new ArrayList<>();
+
+    private final Map<T, Entry<T>> index = new IdentityHashMap<>();
+
+    private final Comparator<Entry<T>> comparator = new Comparator<Entry<T>>() {
+        @Override
+        public int compare(Entry<T> o1, Entry<T> o2) {
+            return CompactionIndex.this.compare(o1, o2.page, major(o2), minor(o2));
+        }
+    };
+
+    /**
+     * @param vertical true为纵向紧凑，先按行再按列排序；false先按列再按行。修改时重新排序一次
+     */
+    void setVertical(boolean vertical) {
+        if (this.vertical != vertical) {
+            this.vertical = vertical;
+            Collections.sort(entries, comparator);
+        }
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * 加入或更新Item，位置没有变化时不移动
+     */
+    void put(T item, int page, int row, int col, int rowSpan, int colSpan) {
+        Entry<T> entry = index.get(item);
+        if (entry == null) {
+            entry = new Entry<>(item);
+            index.put(item, entry);
+        } else if (entry.page == page && entry.row == row && entry.col == col) {
+            entry.rowSpan = rowSpan;
+            entry.colSpan = colSpan;
+            return;
+        } else {
+            entries.remove(indexOf(entry));
+        }
+        entry.page = page;
+        entry.row = row;
+        entry.col = col;
+        entry.rowSpan = rowSpan;
+        entry.colSpan = colSpan;
+        entries.add(lowerBound(page, major(entry), minor(entry)), entry);
+    }
+
+    void remove(T item) {
+        Entry<T> entry = index.remove(item);
+        if (entry != null) {
+            entries.remove(indexOf(entry));
+        }
+    }
+
+    boolean contains(T item) {
+        return index.containsKey(item);
+    }
+
+    void clear() {
+        entries.clear();
+        index.clear();
+    }
+
+    /**
+     * 以skyline的方式计算page页紧凑排列后的位置，from之前的Item保持不动
+     *
+     * @param from  纵向紧凑时发生变化的最小行，横向时为最小列
+     * @param lanes 纵向紧凑时为列数，横向时为行数
+     * @return 位置需要改变的Item，新位置为{@link Entry#target}
+     */
+    List<Entry<T>> compact(int page, int from, int lanes, MoveFilter<T> filter) {
+        List<Entry<T>> result = new ArrayList<>();
+        //skyline[i] 表示第i列(横向时为第i行)已被占用到的位置
+        int[] skyline = new int[Math.max(0, lanes)];
+        for (int n = lowerBound(page, Integer.MIN_VALUE, Integer.MIN_VALUE); n < entries.size(); n++) {
+            Entry<T> e = entries.get(n);
+            if (e.page != page) {
+                break;
+            }
+            int major = major(e);
+            int majorSpan = vertical ? e.rowSpan : e.colSpan;
+            int minor = Math.max(0, minor(e));
+            int minorEnd = Math.min(minor(e) + (vertical ? e.colSpan : e.rowSpan), skyline.length);
+
+            int target = major;
+            if (major >= from) {
+                target = 0;
+                for (int i = minor; i < minorEnd; i++) {
+                    target = Math.max(target, skyline[i]);
+                }
+                target = Math.min(target, major);
+                if (target != major && filter != null && !filter.canMove(e, target)) {
+                    target = major;
+                }
+            }
+            for (int i = minor; i < minorEnd; i++) {
+                skyline[i] = Math.max(skyline[i], target + majorSpan);
+            }
+            e.target = target;
+            if (target != major) {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+
+    private int major(Entry<T> e) {
+        return vertical ? e.row : e.col;
+    }
+
+    private int minor(Entry<T> e) {
+        return vertical ? e.col : e.row;
+    }
+
+    private int compare(Entry<T> e, int page, int major, int minor) {
+        if (e.page != page) {
+            return Integer.compare(e.page, page);
+        }
+        if (major(e) != major) {
+            return Integer.compare(major(e), major);
+        }
+        return Integer.compare(minor(e), minor);
+    }
+
+    /**
+     * 第一个不小于(page, major, minor)的位置
+     */
+    private int lowerBound(int page, int major, int minor) {
+        int low = 0;
+        int high = entries.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(entries.get(mid), page, major, minor) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 位置相同的Item可能有多个，从二分查找的结果开始按引用查找
+     */
+    private int indexOf(Entry<T> entry) {
+        for (int i = lowerBound(entry.page, major(entry), minor(entry)); i < entries.size(); i++) {
+            if (entries.get(i) == entry) {
+                return i;
+            }
+        }
+        //正常不会发生，退化为线性查找
+        return entries.indexOf(entry);
+    }
+}
@@ -0,0 +1,264 @@
+package com.edhlily.draggrid;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.graphics.drawable.BitmapDrawable;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.ViewGroup;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 在多个DragGridLayout之间拖动Item
+ * <p>
+ * 拖出所在的DragGridLayout后，Item的截图绘制在公共父布局的overlay上，每帧只确定一次目标DragGridLayout，
+ * 松手时才把View移动到新的DragGridLayout中，拖动过程中不会重新设置父布局也不会重新布局
+ */
+public class DragController {
+    /**
+     * 绘制拖动截图的公共父布局
+     */
+    private final ViewGroup overlayHost;
+
+    private final List<DragGridLayout> grids = new ArrayList<>();
+
+    /**
+     * 拖动开始时各个DragGridLayout在屏幕上的位置，拖动过程中不再重复计算
+     */
+    private final List<Rect> gridRects = new ArrayList<>();
+
+    /**
+     * 拖动开始时各个DragGridLayout的占用情况，按需计算
+     */
+    private final List<GridOccupancy> gridOccupancies = new ArrayList<>();
+
+    private final int[] location = new int[2];
+
+    private DragGridLayout source;
+    private View dragView;
+    private int rowSpan;
+    private int colSpan;
+
+    private BitmapDrawable snapshot;
+    private boolean outside = false;
+    private float viewAlpha = 1f;
+
+    /**
+     * 手指相对于被拖动Item左上角的位置
+     */
+    private float fingerOffsetX;
+    private float fingerOffsetY;
+
+    private float pendingRawX;
+    private float pendingRawY;
+    private boolean framePosted = false;
+
+    /**
+     * 当前帧确定的目标
+     */
+    private DragGridLayout target;
+    private int targetRow = -1;
+    private int targetCol = -1;
+
+    private final Choreographer.FrameCallback frameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            framePosted = false;
+            if (dragView != null && outside) {
+                resolve(pendingRawX, pendingRawY);
+            }
+        }
+    };
+
+    public DragController(ViewGroup overlayHost) {
+        this.overlayHost = overlayHost;
+    }
+
+    public void register(DragGridLayout grid) {
+        if (!grids.contains(grid)) {
+            grids.add(grid);
+            grid.setDragController(this);
+        }
+    }
+
+    public void unregister(DragGridLayout grid) {
+        if (grids.remove(grid) && grid.getDragController() == this) {
+            grid.setDragController(null);
+        }
+    }
+
+    /**
+     * 开始拖动，预先生成截图并记录所有DragGridLayout的位置
+     */
+    void startDrag(DragGridLayout source, View view, int rowSpan, int colSpan, float rawX, float rawY) {
+        this.source = source;
+        this.dragView = view;
+        this.rowSpan = rowSpan;
+        this.colSpan = colSpan;
+        this.outside = false;
+        this.viewAlpha = view.getAlpha();
+
+        view.getLocationOnScreen(location);
+        fingerOffsetX = rawX - location[0];
+        fingerOffsetY = rawY - location[1];
+
+        gridRects.clear();
+        gridOccupancies.clear();
+        for (DragGridLayout grid : grids) {
+            grid.getLocationOnScreen(location);
+            gridRects.add(new Rect(location[0], location[1],
+                    location[0] + grid.getWidth(), location[1] + grid.getHeight()));
+            gridOccupancies.add(null);
+        }
+
+        int width = Math.max(1, view.getWidth());
+        int height = Math.max(1, view.getHeight());
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        view.draw(new Canvas(bitmap));
+        snapshot = new BitmapDrawable(view.getResources(), bitmap);
+    }
+
+    boolean isDragging() {
+        return dragView != null;
+    }
+
+    /**
+     * 手指在源DragGridLayout外移动，记录位置等到下一帧再处理
+     */
+    void dragOutside(float rawX, float rawY) {
+        if (dragView == null) {
+            return;
+        }
+        if (!outside) {
+            outside = true;
+            dragView.setAlpha(0f);
+            overlayHost.getOverlay().add(snapshot);
+        }
+        pendingRawX = rawX;
+        pendingRawY = rawY;
+        if (!framePosted) {
+            framePosted = true;
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        }
+    }
+
+    /**
+     * 手指回到源DragGridLayout内
+     */
+    void dragInside() {
+        if (dragView == null || !outside) {
+            return;
+        }
+        outside = false;
+        dragView.setAlpha(viewAlpha);
+        overlayHost.getOverlay().remove(snapshot);
+        setTarget(null, -1, -1);
+    }
+
+    /**
+     * 松手
+     *
+     * @return true表示Item已经被放入其他DragGridLayout
+     */
+    boolean drop(float rawX, float rawY) {
+        if (dragView == null) {
+            return false;
+        }
+        boolean moved = false;
+        if (outside) {
+            resolve(rawX, rawY);
+            if (target != null) {
+                DragGridLayout to = target;
+                int row = targetRow;
+                int col = targetCol;
+                View view = dragView;
+                dragView.setAlpha(viewAlpha);
+                source.releaseToForeignGrid(view);
+                to.acceptForeignDrop(view, row, col, rowSpan, colSpan);
+                moved = true;
+            }
+        }
+        endDrag();
+        return moved;
+    }
+
+    /**
+     * 结束拖动并清理overlay
+     */
+    void endDrag() {
+        if (framePosted) {
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+            framePosted = false;
+        }
+        if (outside) {
+            dragView.setAlpha(viewAlpha);
+            overlayHost.getOverlay().remove(snapshot);
+            outside = false;
+        }
+        setTarget(null, -1, -1);
+        if (snapshot != null) {
+            snapshot.getBitmap().recycle();
+            snapshot = null;
+        }
+        gridRects.clear();
+        gridOccupancies.clear();
+        dragView = null;
+        source = null;
+    }
+
+    /**
+     * 移动截图并确定手指下的DragGridLayout和格子
+     */
+    private void resolve(float rawX, float rawY) {
+        overlayHost.getLocationOnScreen(location);
+        float scale = source.getDragScale();
+        int width = (int) (dragView.getWidth() * scale);
+        int height = (int) (dragView.getHeight() * scale);
+        int left = (int) (rawX - fingerOffsetX * scale) - location[0];
+        int top = (int) (rawY - fingerOffsetY * scale) - location[1];
+        snapshot.setBounds(left, top, left + width, top + height);
+
+        //以Item中心点所在的格子作为放置位置
+        float centerX = rawX - fingerOffsetX + dragView.getWidth() / 2f;
+        float centerY = rawY - fingerOffsetY + dragView.getHeight() / 2f;
+        for (int i = 0; i < grids.size(); i++) {
+            DragGridLayout grid = grids.get(i);
+            Rect rect = gridRects.get(i);
+            if (grid == source || !rect.contains((int) centerX, (int) centerY)) {
+                continue;
+            }
+            int row = grid.getRowAt((int) centerY - rect.top);
+            int col = grid.getColAt((int) centerX - rect.left + grid.getScrollX());
+            row = Math.max(0, Math.min(row, grid.getRowCount() - rowSpan));
+            col = Math.max(0, Math.min(col, grid.getColCount() - colSpan));
+            GridOccupancy occupancy = gridOccupancies.get(i);
+            if (occupancy == null) {
+                occupancy = grid.buildOccupancy(null);
+                gridOccupancies.set(i, occupancy);
+            }
+            if (occupancy.isFree(row, col, rowSpan, colSpan)
+                    && DragGridLayout.isInAllowedRegion(
+                    (DragGridLayout.LayoutParams) dragView.getLayoutParams(), row, col, rowSpan, colSpan)) {
+                setTarget(grid, row, col);
+                return;
+            }
+            break;
+        }
+        setTarget(null, -1, -1);
+    }
+
+    private void setTarget(DragGridLayout grid, int row, int col) {
+        if (target != null && (target != grid || targetRow != row || targetCol != col)) {
+            target.clearDropHint();
+        }
+        target = grid;
+        targetRow = row;
+        targetCol = col;
+        if (grid != null) {
+            grid.showDropHint(row, col, rowSpan, colSpan);
+        }
+    }
+}
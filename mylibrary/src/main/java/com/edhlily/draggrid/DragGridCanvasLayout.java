@@ -0,0 +1,585 @@
+package com.edhlily.draggrid;
+
+import android.content.Context;
+import android.content.res.TypedArray;
+import android.util.AttributeSet;
+import android.util.LongSparseArray;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.view.ViewPropertyAnimator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 稀疏的可平移网格画布
+ * <p>
+ * 行列数不限，Item的位置保存在{@link CellQuadTree}中，只有和可见区域相交的Item才会创建View，
+ * 移出可见区域的View会被回收复用。点击测试和拖动交换都通过四叉树查询，不遍历子View。
+ * 拖动交换规则和DragGridLayout相同，也可以拖到空白的位置
+ */
+public class DragGridCanvasLayout extends ViewGroup {
+
+    public interface ItemViewAdapter {
+        android.view.View onCreateView(ViewGroup parent);
+
+        void onBindView(android.view.View view, DragGridLayout.Item item);
+    }
+
+    public interface OnItemMovedListener {
+        /**
+         * Item的位置发生了改变
+         */
+        void onItemMoved(long id, int row, int col);
+    }
+
+    private static final int CELL_WIDTH = R.styleable.DragGridCanvasLayout_cellWidth;
+    private static final int CELL_HEIGHT = R.styleable.DragGridCanvasLayout_cellHeight;
+    private static final int ROW_SPACING = R.styleable.DragGridCanvasLayout_rowSpacing;
+    private static final int COL_SPACING = R.styleable.DragGridCanvasLayout_colSpacing;
+
+    /**
+     * 可见区域外额外创建View的格子数，减少平移时的创建
+     */
+    private static final int VIEWPORT_MARGIN = 1;
+
+    /**
+     * 拖动到距离边缘多远(dp)时开始自动平移
+     */
+    private static final int AUTO_SCROLL_EDGE = 48;
+
+    /**
+     * 自动平移每帧的最大距离(dp)
+     */
+    private static final int AUTO_SCROLL_MAX_SPEED = 16;
+
+    private int cellWidth = 100;
+    private int cellHeight = 100;
+    private int rowSpacing = 0;
+    private int colSpacing = 0;
+
+    /**
+     * 当Item被拖动时的放大系数
+     */
+    private float dragScale = 1.1f;
+
+    /**
+     * Item移动动画时间
+     */
+    private long animationDuration = -1;
+
+    private final CellQuadTree index = new CellQuadTree();
+
+    /**
+     * id -> 已经创建的View
+     */
+    private final LongSparseArray<View> attachedViews = new LongSparseArray<>();
+    private final ArrayDeque<View> scrapViews = new ArrayDeque<>();
+    private final List<CellQuadTree.Entry> visibleEntries = new ArrayList<>();
+
+    private ItemViewAdapter adapter;
+    private OnItemMovedListener onItemMovedListener;
+
+    private final int touchSlop;
+    private final int longPressTimeout;
+    private final int autoScrollEdge;
+    private final int autoScrollMaxSpeed;
+    private boolean autoScrolling = false;
+
+    private float downX;
+    private float downY;
+    private float lastX;
+    private float lastY;
+    private boolean panning = false;
+
+    /**
+     * 正在拖动的Item
+     */
+    private CellQuadTree.Entry dragging;
+    private View draggingView;
+    private final int[] swapResult = new int[4];
+
+    public DragGridCanvasLayout(Context context) {
+        this(context, null);
+    }
+
+    public DragGridCanvasLayout(Context context, AttributeSet attrs) {
+        this(context, attrs, 0);
+    }
+
+    public DragGridCanvasLayout(Context context, AttributeSet attrs, int defStyleAttr) {
+        this(context, attrs, defStyleAttr, 0);
+    }
+
+    public DragGridCanvasLayout(Context context, AttributeSet attrs, int defStyleAttr, int defStyleRes) {
+        super(context, attrs, defStyleAttr, defStyleRes);
+        final TypedArray a = context.obtainStyledAttributes(
+                attrs, R.styleable.DragGridCanvasLayout, defStyleAttr, defStyleRes);
+        try {
+            cellWidth = a.getDimensionPixelSize(CELL_WIDTH, cellWidth);
+            cellHeight = a.getDimensionPixelSize(CELL_HEIGHT, cellHeight);
+            rowSpacing = a.getDimensionPixelSize(ROW_SPACING, 0);
+            colSpacing = a.getDimensionPixelSize(COL_SPACING, 0);
+        } finally {
+            a.recycle();
+        }
+        ViewConfiguration configuration = ViewConfiguration.get(context);
+        touchSlop = configuration.getScaledTouchSlop();
+        longPressTimeout = ViewConfiguration.getLongPressTimeout();
+        float density = getResources().getDisplayMetrics().density;
+        autoScrollEdge = (int) (AUTO_SCROLL_EDGE * density);
+        autoScrollMaxSpeed = Math.max(1, (int) (AUTO_SCROLL_MAX_SPEED * density));
+        setClipChildren(false);
+    }
+
+    public void setItemViewAdapter(ItemViewAdapter adapter) {
+        this.adapter = adapter;
+        recycleAll();
+        scrapViews.clear();
+        updateAttachedViews();
+    }
+
+    public void setOnItemMovedListener(OnItemMovedListener onItemMovedListener) {
+        this.onItemMovedListener = onItemMovedListener;
+    }
+
+    public int getCellWidth() {
+        return cellWidth;
+    }
+
+    public void setCellWidth(int cellWidth) {
+        this.cellWidth = cellWidth;
+        requestLayout();
+    }
+
+    public int getCellHeight() {
+        return cellHeight;
+    }
+
+    public void setCellHeight(int cellHeight) {
+        this.cellHeight = cellHeight;
+        requestLayout();
+    }
+
+    public void setRowSpacing(int rowSpacing) {
+        this.rowSpacing = rowSpacing;
+        requestLayout();
+    }
+
+    public void setColSpacing(int colSpacing) {
+        this.colSpacing = colSpacing;
+        requestLayout();
+    }
+
+    public void setDragScale(float dragScale) {
+        this.dragScale = dragScale;
+    }
+
+    public void setAnimationDuration(long animationDuration) {
+        this.animationDuration = animationDuration;
+    }
+
+    /**
+     * 替换所有Item
+     */
+    public void setItems(Collection<DragGridLayout.Item> items) {
+        cancelDrag();
+        recycleAll();
+        index.clear();
+        for (DragGridLayout.Item item : items) {
+            index.put(item.getId(), item.getRow(), item.getCol(), item.getRowSpan(), item.getColSpan());
+        }
+        updateAttachedViews();
+    }
+
+    /**
+     * 加入或者移动一个Item
+     */
+    public void putItem(DragGridLayout.Item item) {
+        index.put(item.getId(), item.getRow(), item.getCol(), item.getRowSpan(), item.getColSpan());
+        View view = attachedViews.get(item.getId());
+        if (view != null) {
+            DragGridLayout.LayoutParams lp = (DragGridLayout.LayoutParams) view.getLayoutParams();
+            lp.setRow(item.getRow());
+            lp.setCol(item.getCol());
+            lp.setRowSpan(item.getRowSpan());
+            lp.setColSpan(item.getColSpan());
+            layoutChild(view);
+        }
+        updateAttachedViews();
+    }
+
+    public void removeItem(long id) {
+        if (dragging != null && dragging.id == id) {
+            cancelDrag();
+        }
+        index.remove(id);
+        View view = attachedViews.get(id);
+        if (view != null) {
+            recycleView(id, view);
+        }
+    }
+
+    public int getItemCount() {
+        return index.size();
+    }
+
+    /**
+     * 内容坐标下某一点所在的Item
+     *
+     * @return 没有Item时返回{@link View#NO_ID}
+     */
+    public long findItemAt(int x, int y) {
+        CellQuadTree.Entry entry = index.findAt(getRowAt(y), getColAt(x), View.NO_ID);
+        return entry == null ? View.NO_ID : entry.id;
+    }
+
+    private int getColAt(int x) {
+        return Math.max(0, (x - getPaddingLeft()) / (cellWidth + colSpacing));
+    }
+
+    private int getRowAt(int y) {
+        return Math.max(0, (y - getPaddingTop()) / (cellHeight + rowSpacing));
+    }
+
+    private int getCellLeft(int col) {
+        return getPaddingLeft() + col * (cellWidth + colSpacing);
+    }
+
+    private int getCellTop(int row) {
+        return getPaddingTop() + row * (cellHeight + rowSpacing);
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        setMeasuredDimension(
+                getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                getDefaultSize(getSuggestedMinimumHeight(), heightMeasureSpec)
+        );
+        for (int i = 0; i < getChildCount(); i++) {
+            measureCell(getChildAt(i));
+        }
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int l, int t, int r, int b) {
+        for (int i = 0; i < getChildCount(); i++) {
+            View child = getChildAt(i);
+            if (child != draggingView) {
+                layoutChild(child);
+            }
+        }
+        updateAttachedViews();
+    }
+
+    private void measureCell(View child) {
+        DragGridLayout.LayoutParams lp = (DragGridLayout.LayoutParams) child.getLayoutParams();
+        int width = lp.getColSpan() * cellWidth + (lp.getColSpan() - 1) * colSpacing;
+        int height = lp.getRowSpan() * cellHeight + (lp.getRowSpan() - 1) * rowSpacing;
+        if (width != child.getMeasuredWidth() || height != child.getMeasuredHeight()) {
+            child.measure(
+                    MeasureSpec.makeMeasureSpec(width, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY)
+            );
+        }
+    }
+
+    private void layoutChild(View child) {
+        measureCell(child);
+        DragGridLayout.LayoutParams lp = (DragGridLayout.LayoutParams) child.getLayoutParams();
+        int left = getCellLeft(lp.getCol());
+        int top = getCellTop(lp.getRow());
+        child.layout(left, top, left + child.getMeasuredWidth(), top + child.getMeasuredHeight());
+    }
+
+    /**
+     * 根据可见区域查询四叉树，创建新进入的Item，回收移出的Item
+     */
+    private void updateAttachedViews() {
+        if (adapter == null || getWidth() == 0 || getHeight() == 0) {
+            return;
+        }
+        int colFrom = Math.max(0, getColAt(getScrollX()) - VIEWPORT_MARGIN);
+        int rowFrom = Math.max(0, getRowAt(getScrollY()) - VIEWPORT_MARGIN);
+        int colTo = getColAt(getScrollX() + getWidth()) + VIEWPORT_MARGIN;
+        int rowTo = getRowAt(getScrollY() + getHeight()) + VIEWPORT_MARGIN;
+
+        visibleEntries.clear();
+        index.query(rowFrom, colFrom, rowTo - rowFrom + 1, colTo - colFrom + 1, visibleEntries);
+
+        for (int i = attachedViews.size() - 1; i >= 0; i--) {
+            long id = attachedViews.keyAt(i);
+            CellQuadTree.Entry entry = index.get(id);
+            View view = attachedViews.valueAt(i);
+            if (view != draggingView && (entry == null
+                    || !entry.intersects(rowFrom, colFrom, rowTo - rowFrom + 1, colTo - colFrom + 1))) {
+                recycleView(id, view);
+            }
+        }
+
+        for (CellQuadTree.Entry entry : visibleEntries) {
+            if (attachedViews.get(entry.id) != null) {
+                continue;
+            }
+            View view = scrapViews.poll();
+            if (view == null) {
+                view = adapter.onCreateView(this);
+            }
+            adapter.onBindView(view, new DragGridLayout.Item(entry.id, entry.row, entry.col, entry.rowSpan, entry.colSpan));
+            DragGridLayout.LayoutParams lp = new DragGridLayout.LayoutParams(entry.row, entry.col, entry.rowSpan, entry.colSpan);
+            lp.setItemId(entry.id);
+            addViewInLayout(view, -1, lp, true);
+            attachedViews.put(entry.id, view);
+            layoutChild(view);
+        }
+        visibleEntries.clear();
+    }
+
+    private void recycleView(long id, View view) {
+        attachedViews.remove(id);
+        view.animate().cancel();
+        view.setTranslationX(0f);
+        view.setTranslationY(0f);
+        removeViewInLayout(view);
+        scrapViews.add(view);
+        //removeViewInLayout不会重绘，在布局之外回收时需要清除原来的内容
+        invalidate();
+    }
+
+    private void recycleAll() {
+        for (int i = attachedViews.size() - 1; i >= 0; i--) {
+            recycleView(attachedViews.keyAt(i), attachedViews.valueAt(i));
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onScrollChanged(int l, int t, int oldl, int oldt) {
+        super.onScrollChanged(l, t, oldl, oldt);
+        updateAttachedViews();
+    }
+
+    private final Runnable longPressRunnable = new Runnable() {
+        @Override
+        public void run() {
+            startDrag();
+        }
+    };
+
+    @Override
+    public boolean onInterceptTouchEvent(MotionEvent ev) {
+        return panning || dragging != null || super.onInterceptTouchEvent(ev);
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                downX = lastX = ev.getX();
+                downY = lastY = ev.getY();
+                panning = false;
+                if (findItemAt((int) downX + getScrollX(), (int) downY + getScrollY()) != View.NO_ID) {
+                    postDelayed(longPressRunnable, longPressTimeout);
+                }
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (dragging == null && !panning
+                        && (Math.abs(ev.getX() - downX) > touchSlop || Math.abs(ev.getY() - downY) > touchSlop)) {
+                    removeCallbacks(longPressRunnable);
+                    panning = true;
+                    getParent().requestDisallowInterceptTouchEvent(true);
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                removeCallbacks(longPressRunnable);
+                getParent().requestDisallowInterceptTouchEvent(false);
+                break;
+        }
+        return super.dispatchTouchEvent(ev);
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent ev) {
+        switch (ev.getActionMasked()) {
+            case MotionEvent.ACTION_MOVE:
+                float dx = ev.getX() - lastX;
+                float dy = ev.getY() - lastY;
+                lastX = ev.getX();
+                lastY = ev.getY();
+                if (dragging != null) {
+                    draggingView.setTranslationX(draggingView.getTranslationX() + dx);
+                    draggingView.setTranslationY(draggingView.getTranslationY() + dy);
+                    resolveDrag();
+                    if (!autoScrolling) {
+                        autoScrolling = true;
+                        postOnAnimation(autoScrollRunnable);
+                    }
+                } else if (panning) {
+                    scrollTo(Math.max(0, getScrollX() - (int) dx), Math.max(0, getScrollY() - (int) dy));
+                    lastX += (int) dx - dx;
+                    lastY += (int) dy - dy;
+                }
+                break;
+            case MotionEvent.ACTION_UP:
+                if (dragging != null) {
+                    drop();
+                }
+                panning = false;
+                break;
+            case MotionEvent.ACTION_CANCEL:
+                cancelDrag();
+                panning = false;
+                break;
+        }
+        return true;
+    }
+
+    private void startDrag() {
+        long id = findItemAt((int) downX + getScrollX(), (int) downY + getScrollY());
+        View view = attachedViews.get(id);
+        if (view == null) {
+            return;
+        }
+        dragging = index.get(id);
+        draggingView = view;
+        getParent().requestDisallowInterceptTouchEvent(true);
+        view.setElevation(10f);
+        view.animate().scaleX(dragScale).scaleY(dragScale).start();
+        lastX = downX;
+        lastY = downY;
+    }
+
+    /**
+     * 用被拖动Item中心所在的格子查询四叉树，按交换规则交换或者移动到空白位置
+     */
+    private void resolveDrag() {
+        int centerX = (int) (draggingView.getX() + draggingView.getWidth() / 2f);
+        int centerY = (int) (draggingView.getY() + draggingView.getHeight() / 2f);
+        int row = getRowAt(centerY);
+        int col = getColAt(centerX);
+        if (row >= dragging.row && row < dragging.row + dragging.rowSpan
+                && col >= dragging.col && col < dragging.col + dragging.colSpan) {
+            return;
+        }
+        CellQuadTree.Entry other = index.findAt(row, col, dragging.id);
+        if (other != null) {
+            if (ReorderRules.resolve(
+                    dragging.row, dragging.col, dragging.rowSpan, dragging.colSpan,
+                    other.row, other.col, other.rowSpan, other.colSpan,
+                    swapResult)) {
+                moveEntry(other, swapResult[0], swapResult[1], true);
+                moveEntry(dragging, swapResult[2], swapResult[3], false);
+            }
+        } else if (index.isFree(row, col, dragging.rowSpan, dragging.colSpan, dragging.id)) {
+            moveEntry(dragging, row, col, false);
+        }
+    }
+
+    /**
+     * 拖动到可见区域边缘时每帧平移画布，被拖动的Item跟着手指不动
+     */
+    private final Runnable autoScrollRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (dragging == null) {
+                autoScrolling = false;
+                return;
+            }
+            int scrollX = Math.max(0, getScrollX() + edgeSpeed(lastX, getWidth()));
+            int scrollY = Math.max(0, getScrollY() + edgeSpeed(lastY, getHeight()));
+            int dx = scrollX - getScrollX();
+            int dy = scrollY - getScrollY();
+            if (dx == 0 && dy == 0) {
+                autoScrolling = false;
+                return;
+            }
+            scrollTo(scrollX, scrollY);
+            draggingView.setTranslationX(draggingView.getTranslationX() + dx);
+            draggingView.setTranslationY(draggingView.getTranslationY() + dy);
+            resolveDrag();
+            postOnAnimation(this);
+        }
+    };
+
+    /**
+     * 手指在边缘区域内时的平移速度，越靠近边缘越快
+     */
+    private int edgeSpeed(float position, int size) {
+        if (position < autoScrollEdge) {
+            return -Math.max(1, (int) (autoScrollMaxSpeed * (autoScrollEdge - position) / autoScrollEdge));
+        } else if (position > size - autoScrollEdge) {
+            return Math.max(1, (int) (autoScrollMaxSpeed * (position - size + autoScrollEdge) / autoScrollEdge));
+        }
+        return 0;
+    }
+
+    private void moveEntry(CellQuadTree.Entry entry, int row, int col, boolean animate) {
+        index.put(entry.id, row, col, entry.rowSpan, entry.colSpan);
+        View view = attachedViews.get(entry.id);
+        if (view != null) {
+            DragGridLayout.LayoutParams lp = (DragGridLayout.LayoutParams) view.getLayoutParams();
+            lp.setRow(row);
+            lp.setCol(col);
+            if (animate) {
+                animateToCell(view);
+            }
+        }
+        if (onItemMovedListener != null) {
+            onItemMovedListener.onItemMoved(entry.id, row, col);
+        }
+    }
+
+    /**
+     * 直接布局到新位置，再用平移从原来的位置动画过去，不触发重新布局
+     */
+    private void animateToCell(View view) {
+        float x = view.getX();
+        float y = view.getY();
+        view.animate().cancel();
+        layoutChild(view);
+        view.setTranslationX(x - view.getLeft());
+        view.setTranslationY(y - view.getTop());
+        ViewPropertyAnimator animator = view.animate().translationX(0f).translationY(0f).scaleX(1f).scaleY(1f);
+        if (animationDuration > -1) {
+            animator.setDuration(animationDuration);
+        }
+        animator.start();
+    }
+
+    private void drop() {
+        removeCallbacks(autoScrollRunnable);
+        autoScrolling = false;
+        View view = draggingView;
+        dragging = null;
+        draggingView = null;
+        view.setElevation(0f);
+        animateToCell(view);
+        updateAttachedViews();
+    }
+
+    private void cancelDrag() {
+        if (dragging != null) {
+            drop();
+        }
+    }
+
+    @Override
+    protected DragGridLayout.LayoutParams generateDefaultLayoutParams() {
+        return new DragGridLayout.LayoutParams();
+    }
+
+    @Override
+    protected DragGridLayout.LayoutParams generateLayoutParams(ViewGroup.LayoutParams p) {
+        return new DragGridLayout.LayoutParams(p);
+    }
+
+    @Override
+    protected boolean checkLayoutParams(ViewGroup.LayoutParams p) {
+        return p instanceof DragGridLayout.LayoutParams;
+    }
+}
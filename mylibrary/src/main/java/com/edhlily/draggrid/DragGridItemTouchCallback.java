@@ -0,0 +1,143 @@
+package com.edhlily.draggrid;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.ItemTouchHelper;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * 配合{@link DragGridLayoutManager}使用的ItemTouchHelper.Callback，交换规则和DragGridLayout相同
+ * <pre>
+ * new ItemTouchHelper(new DragGridItemTouchCallback(layoutManager, listener)).attachToRecyclerView(recyclerView);
+ * </pre>
+ */
+public class DragGridItemTouchCallback extends ItemTouchHelper.Callback {
+
+    /**
+     * notifyItemChanged的payload，只有位置变化，不需要重新绑定数据
+     */
+    public static final Object PAYLOAD_CELL_CHANGED = new Object();
+
+    public interface OnCellsSwappedListener {
+        /**
+         * 两个Item交换了位置，需要同步修改数据中的row/col
+         *
+         * @param position      被拖动的Item
+         * @param row           被拖动Item的新行
+         * @param col           被拖动Item的新列
+         * @param otherPosition 被交换的Item
+         * @param otherRow      被交换Item的新行
+         * @param otherCol      被交换Item的新列
+         */
+        void onCellsSwapped(int position, int row, int col, int otherPosition, int otherRow, int otherCol);
+    }
+
+    private final DragGridLayoutManager layoutManager;
+    private final OnCellsSwappedListener listener;
+
+    /**
+     * 当Item被拖动时的放大系数
+     */
+    private float dragScale = 1.1f;
+
+    /**
+     * 约束可拖动的方向
+     */
+    private int dragOrientation = DragGridLayout.ORIENTATION_ALL;
+
+    private final int[] dragCell = new int[4];
+    private final int[] otherCell = new int[4];
+    private final int[] swapResult = new int[4];
+
+    public DragGridItemTouchCallback(DragGridLayoutManager layoutManager, OnCellsSwappedListener listener) {
+        this.layoutManager = layoutManager;
+        this.listener = listener;
+    }
+
+    public float getDragScale() {
+        return dragScale;
+    }
+
+    public void setDragScale(float dragScale) {
+        this.dragScale = dragScale;
+    }
+
+    public int getDragOrientation() {
+        return dragOrientation;
+    }
+
+    public void setDragOrientation(int dragOrientation) {
+        this.dragOrientation = dragOrientation;
+    }
+
+    @Override
+    public int getMovementFlags(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder viewHolder) {
+        int flags = 0;
+        if (dragOrientation == DragGridLayout.ORIENTATION_ALL || dragOrientation == DragGridLayout.ORIENTATION_VERTICAL) {
+            flags |= ItemTouchHelper.UP | ItemTouchHelper.DOWN;
+        }
+        if (dragOrientation == DragGridLayout.ORIENTATION_ALL || dragOrientation == DragGridLayout.ORIENTATION_HORIZONTAL) {
+            flags |= ItemTouchHelper.LEFT | ItemTouchHelper.RIGHT;
+        }
+        return makeMovementFlags(flags, 0);
+    }
+
+    @Override
+    public boolean onMove(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder viewHolder,
+                          @NonNull RecyclerView.ViewHolder target) {
+        int position = viewHolder.getAdapterPosition();
+        int otherPosition = target.getAdapterPosition();
+        if (position == RecyclerView.NO_POSITION || otherPosition == RecyclerView.NO_POSITION
+                || !layoutManager.getCell(position, dragCell) || !layoutManager.getCell(otherPosition, otherCell)) {
+            return false;
+        }
+        if (!ReorderRules.resolve(
+                dragCell[0], dragCell[1], dragCell[2], dragCell[3],
+                otherCell[0], otherCell[1], otherCell[2], otherCell[3],
+                swapResult)) {
+            return false;
+        }
+        listener.onCellsSwapped(position, swapResult[2], swapResult[3], otherPosition, swapResult[0], swapResult[1]);
+        layoutManager.setCellPosition(position, swapResult[2], swapResult[3]);
+        layoutManager.setCellPosition(otherPosition, swapResult[0], swapResult[1]);
+        //带payload通知，ItemAnimator复用原来的ViewHolder执行移动动画
+        RecyclerView.Adapter<?> adapter = recyclerView.getAdapter();
+        if (adapter != null) {
+            adapter.notifyItemChanged(position, PAYLOAD_CELL_CHANGED);
+            adapter.notifyItemChanged(otherPosition, PAYLOAD_CELL_CHANGED);
+        }
+        return true;
+    }
+
+    @Override
+    public void onMoved(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder viewHolder, int fromPos,
+                        @NonNull RecyclerView.ViewHolder target, int toPos, int x, int y) {
+        //默认实现在目标位于边缘时调用scrollToPosition，会把DragGridLayoutManager的滚动位置跳到行首，
+        //拖动中的滚动交给ItemTouchHelper的自动滚动
+    }
+
+    @Override
+    public void onSwiped(@NonNull RecyclerView.ViewHolder viewHolder, int direction) {
+    }
+
+    @Override
+    public void onSelectedChanged(RecyclerView.ViewHolder viewHolder, int actionState) {
+        super.onSelectedChanged(viewHolder, actionState);
+        if (viewHolder != null && actionState == ItemTouchHelper.ACTION_STATE_DRAG) {
+            viewHolder.itemView.setSelected(true);
+            viewHolder.itemView.animate()
+                    .scaleX(dragScale)
+                    .scaleY(dragScale)
+                    .start();
+        }
+    }
+
+    @Override
+    public void clearView(@NonNull RecyclerView recyclerView, @NonNull RecyclerView.ViewHolder viewHolder) {
+        super.clearView(recyclerView, viewHolder);
+        viewHolder.itemView.setSelected(false);
+        viewHolder.itemView.animate()
+                .scaleX(1f)
+                .scaleY(1f)
+                .start();
+    }
+}
@@ -1,36 +1,58 @@
 package com.edhlily.draggrid;
 
 import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.SparseArray;
+import android.util.TypedValue;
+import android.view.Choreographer;
 import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.view.ViewPropertyAnimator;
+import android.view.ViewTreeObserver;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 public class DragGridLayout extends ViewGroup {
     private static final String TAG = "DragGridLayout";
     /**
-     * 滑动多少距离后触发拖动操作
+     * 分页模式下拖动到边缘停留多长时间后翻页
      */
-    private static final int DRAG_SLOP = 25;
+    private static final int PAGE_FLIP_DWELL = 500;
 
     /**
-     * 按住不动多长时间后触发拖动操作
+     * 分页模式下触发翻页的边缘宽度(dp)
      */
-    private static final int CLICK_TIME_OUT = 200;
+    private static final int PAGE_EDGE_WIDTH = 24;
 
     /**
      * 允许所有方向拖动
@@ -47,6 +69,21 @@ public class DragGridLayout extends ViewGroup {
      */
     public static final int ORIENTATION_HORIZONTAL = 2;
 
+    /**
+     * 不自动紧凑排列
+     */
+    public static final int COMPACT_NONE = 0;
+
+    /**
+     * 拖动结束后Item向上紧凑排列
+     */
+    public static final int COMPACT_VERTICAL = 1;
+
+    /**
+     * 拖动结束后Item向左紧凑排列
+     */
+    public static final int COMPACT_HORIZONTAL = 2;
+
     /**
      * grid多少行
      */
@@ -67,6 +104,31 @@ public class DragGridLayout extends ViewGroup {
      */
     private static final int COL_SPACING = R.styleable.DragGridLayout_colSpacing;
 
+    /**
+     * 紧凑排列方式
+     */
+    private static final int COMPACT_MODE = R.styleable.DragGridLayout_compactMode;
+
+    /**
+     * 每行的尺寸
+     */
+    private static final int ROW_SIZES = R.styleable.DragGridLayout_rowSizes;
+
+    /**
+     * 每列的尺寸
+     */
+    private static final int COL_SIZES = R.styleable.DragGridLayout_colSizes;
+
+    /**
+     * 宽度断点对应的列数
+     */
+    private static final int COL_BREAKPOINTS = R.styleable.DragGridLayout_colBreakpoints;
+
+    /**
+     * 是否分页
+     */
+    private static final int PAGED = R.styleable.DragGridLayout_paged;
+
     /**
      * 行
      */
@@ -77,6 +139,36 @@ public class DragGridLayout extends ViewGroup {
      */
     private int colCount = 1;
 
+    /**
+     * 没有匹配的宽度断点时使用的行数
+     */
+    private int defaultRowCount = 1;
+
+    /**
+     * 没有匹配的宽度断点时使用的列数
+     */
+    private int defaultColCount = 1;
+
+    /**
+     * 最小宽度(px) -> 列数
+     */
+    private final TreeMap<Integer, Integer> colBreakpoints = new TreeMap<>();
+
+    /**
+     * 列数 -> 该列数下的Item位置，切换回之前的宽度时直接复用
+     */
+    private final SparseArray<GridArrangement> arrangementCache = new SparseArray<>();
+
+    /**
+     * 每行的尺寸和起始位置
+     */
+    private final GridTracks rowTracks = new GridTracks();
+
+    /**
+     * 每列的尺寸和起始位置
+     */
+    private final GridTracks colTracks = new GridTracks();
+
     /**
      * 行间隔
      */
@@ -110,8 +202,99 @@ public class DragGridLayout extends ViewGroup {
      */
     private boolean allowItemOutside = false;
 
+    /**
+     * 拖动结束后的紧凑排列方式
+     */
+    private int compactMode = COMPACT_NONE;
+
+    /**
+     * 是否分页，每页都是rowCount x colCount，只有当前页和相邻页的Item参与测量、布局和绘制
+     */
+    private boolean paged = false;
+
+    /**
+     * 当前页
+     */
+    private int currentPage = 0;
+
+    /**
+     * 分页模式下参与测量、布局和绘制的页，其他页的Item保持attach但被跳过
+     */
+    private int activePageMin = Integer.MIN_VALUE;
+    private int activePageMax = Integer.MAX_VALUE;
+
+    private ValueAnimator pageAnimator;
+
+    /**
+     * 触发翻页的边缘宽度(px)
+     */
+    private int pageEdgeWidth;
+
+    /**
+     * 拖动到边缘等待翻页的方向，-1上一页，1下一页，0不翻页
+     */
+    private int pendingFlipDirection = 0;
+
     private OnDragStatusChangedListener onDragStatusChangedListener;
 
+    private ItemViewFactory itemViewFactory;
+
+    /**
+     * 在后台计算排列差异的线程
+     */
+    private Executor diffExecutor;
+
+    private static Executor defaultDiffExecutor;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * 每次submitArrangement加1，只应用最后一次提交的结果
+     */
+    private int submitGeneration = 0;
+
+    /**
+     * 排列版本，Item位置被修改时加1
+     */
+    private int arrangementVersion = 0;
+
+    /**
+     * 拖动过程中收到的排列，拖动结束后再提交
+     */
+    private List<Item> pendingArrangement;
+
+    /**
+     * 修改行列数或间隔前Item的位置，下一次布局后从这些位置动画到新位置
+     */
+    private Map<View, Rect> gridTransitionBounds;
+
+    /**
+     * 所有锁定过的格子，只会变大，网格暂时变小时超出的锁定也不会丢失
+     */
+    private GridOccupancy lockedMask = new GridOccupancy(1, 1);
+
+    /**
+     * 网格内锁定的格子，由lockedMask按当前行列数得到
+     */
+    private GridOccupancy lockedCells = new GridOccupancy(1, 1);
+
+    /**
+     * 任意线程通过postItemUpdate提交的修改，每帧在主线程取出一次
+     */
+    private final ConcurrentLinkedQueue<Item> pendingUpdates = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean updateFrameScheduled = new AtomicBoolean(false);
+
+    /**
+     * 还没有应用的修改，同一个Item只保留最后一次，拖动过程中的修改保留到拖动结束
+     */
+    private final Map<Long, Item> deferredUpdates = new LinkedHashMap<>();
+
+    /**
+     * 跨DragGridLayout拖动的控制器
+     */
+    private DragController dragController;
+
     private Paint paint;
 
 
@@ -137,6 +320,11 @@ public class DragGridLayout extends ViewGroup {
             setColCount(a.getInt(COLUMN_COUNT, 1));
             setRowSpacing(a.getDimensionPixelSize(ROW_SPACING, 0));
             setColSpacing(a.getDimensionPixelSize(COL_SPACING, 0));
+            setCompactMode(a.getInt(COMPACT_MODE, COMPACT_NONE));
+            rowTracks.parse(a.getString(ROW_SIZES), getResources().getDisplayMetrics());
+            colTracks.parse(a.getString(COL_SIZES), getResources().getDisplayMetrics());
+            parseColBreakpoints(a.getString(COL_BREAKPOINTS));
+            paged = a.getBoolean(PAGED, false);
         } finally {
             a.recycle();
         }
@@ -152,6 +340,12 @@ public class DragGridLayout extends ViewGroup {
         paint.setColor(Color.YELLOW);
         paint.setStyle(Paint.Style.STROKE);
         paint.setStrokeWidth(2);
+
+        pageEdgeWidth = (int) (PAGE_EDGE_WIDTH * getResources().getDisplayMetrics().density);
+
+        touchSlop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
+        longPressTimeout = ViewConfiguration.getLongPressTimeout();
+        tapTimeout = ViewConfiguration.getTapTimeout();
     }
 
     public interface OnDragStatusChangedListener {
@@ -186,6 +380,52 @@ public class DragGridLayout extends ViewGroup {
         this.onDragStatusChangedListener = onDragStatusChangedListener;
     }
 
+    public ItemViewFactory getItemViewFactory() {
+        return itemViewFactory;
+    }
+
+    public void setItemViewFactory(ItemViewFactory itemViewFactory) {
+        this.itemViewFactory = itemViewFactory;
+    }
+
+    /**
+     * 设置计算排列差异的线程，默认使用一个共享的后台线程
+     */
+    public void setDiffExecutor(Executor diffExecutor) {
+        this.diffExecutor = diffExecutor;
+    }
+
+    private Executor getDiffExecutor() {
+        if (diffExecutor != null) {
+            return diffExecutor;
+        }
+        synchronized (DragGridLayout.class) {
+            if (defaultDiffExecutor == null) {
+                defaultDiffExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "DragGridLayout-diff");
+                        //不阻止进程退出
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            return defaultDiffExecutor;
+        }
+    }
+
+    public DragController getDragController() {
+        return dragController;
+    }
+
+    /**
+     * 设置跨DragGridLayout拖动的控制器，一般通过{@link DragController#register(DragGridLayout)}设置
+     */
+    public void setDragController(DragController dragController) {
+        this.dragController = dragController;
+    }
+
     @Override
     protected LayoutParams generateDefaultLayoutParams() {
         return new LayoutParams();
@@ -206,12 +446,40 @@ public class DragGridLayout extends ViewGroup {
         private static final int COLUMN_SPAN = R.styleable.DragGridLayout_Layout_layout_columnSpan;
         private static final int ROW = R.styleable.DragGridLayout_Layout_layout_row;
         private static final int ROW_SPAN = R.styleable.DragGridLayout_Layout_layout_rowSpan;
+        private static final int PAGE = R.styleable.DragGridLayout_Layout_layout_page;
 
         private int row = 0;
         private int col = 0;
         private int rowSpan = 1;
         private int colSpan = 1;
 
+        /**
+         * 网格变小时跨度被裁剪前设置的跨度，0表示没有被裁剪，网格变大后恢复
+         */
+        private int declaredRowSpan = 0;
+        private int declaredColSpan = 0;
+
+        /**
+         * Item的稳定id，用于{@link #submitArrangement(List)}对比，hasItemId为false时没有id
+         */
+        private long itemId = 0;
+        private boolean hasItemId = false;
+
+        /**
+         * 分页模式下所在页
+         */
+        private int page = 0;
+
+        /**
+         * 设置了允许区域时，不允许放置的格子，null表示不限制
+         */
+        private GridOccupancy forbiddenCells;
+
+        /**
+         * 非分页模式下网格放不下而隐藏，空位足够后重新显示
+         */
+        private boolean overflow = false;
+
         public LayoutParams() {
             super(MATCH_PARENT, MATCH_PARENT);
         }
@@ -224,6 +492,14 @@ public class DragGridLayout extends ViewGroup {
                 this.col = ((LayoutParams) params).col;
                 this.rowSpan = ((LayoutParams) params).rowSpan;
                 this.colSpan = ((LayoutParams) params).colSpan;
+                this.declaredRowSpan = ((LayoutParams) params).declaredRowSpan;
+                this.declaredColSpan = ((LayoutParams) params).declaredColSpan;
+                this.itemId = ((LayoutParams) params).itemId;
+                this.hasItemId = ((LayoutParams) params).hasItemId;
+                this.page = ((LayoutParams) params).page;
+                this.overflow = ((LayoutParams) params).overflow;
+                GridOccupancy forbidden = ((LayoutParams) params).forbiddenCells;
+                this.forbiddenCells = forbidden == null ? null : forbidden.copy();
             }
         }
 
@@ -247,6 +523,7 @@ public class DragGridLayout extends ViewGroup {
                 colSpan = a.getInt(COLUMN_SPAN, 1);
                 row = a.getInt(ROW, 1);
                 rowSpan = a.getInt(ROW_SPAN, 1);
+                page = a.getInt(PAGE, 0);
             } finally {
                 a.recycle();
             }
@@ -275,6 +552,7 @@ public class DragGridLayout extends ViewGroup {
 
         public void setRowSpan(int rowSpan) {
             this.rowSpan = rowSpan;
+            this.declaredRowSpan = 0;
         }
 
         public int getColSpan() {
@@ -283,74 +561,758 @@ public class DragGridLayout extends ViewGroup {
 
         public void setColSpan(int colSpan) {
             this.colSpan = colSpan;
+            this.declaredColSpan = 0;
+        }
+
+        public long getItemId() {
+            return itemId;
+        }
+
+        /**
+         * 设置稳定id，任意long值(包括-1)都是有效的id
+         */
+        public void setItemId(long itemId) {
+            this.itemId = itemId;
+            this.hasItemId = true;
+        }
+
+        public boolean hasItemId() {
+            return hasItemId;
+        }
+
+        public void clearItemId() {
+            this.itemId = 0;
+            this.hasItemId = false;
+        }
+
+        public int getPage() {
+            return page;
+        }
+
+        public void setPage(int page) {
+            this.page = page;
+        }
+
+        public boolean isOverflow() {
+            return overflow;
+        }
+    }
+
+    /**
+     * 排列中的一个Item，id在同一个排列中必须唯一
+     */
+    public static final class Item {
+        private final long id;
+        private final int row;
+        private final int col;
+        private final int rowSpan;
+        private final int colSpan;
+        private final int page;
+
+        /**
+         * 是否指定了所在页，没有指定时新加入的Item放在当前页，已有的Item保持原来的页
+         */
+        private final boolean hasPage;
+
+        public Item(long id, int row, int col, int rowSpan, int colSpan) {
+            this(id, row, col, rowSpan, colSpan, 0, false);
+        }
+
+        /**
+         * @param page 分页模式下所在页
+         */
+        public Item(long id, int row, int col, int rowSpan, int colSpan, int page) {
+            this(id, row, col, rowSpan, colSpan, page, true);
+        }
+
+        private Item(long id, int row, int col, int rowSpan, int colSpan, int page, boolean hasPage) {
+            this.id = id;
+            this.row = row;
+            this.col = col;
+            this.rowSpan = rowSpan;
+            this.colSpan = colSpan;
+            this.page = page;
+            this.hasPage = hasPage;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public int getCol() {
+            return col;
+        }
+
+        public int getRowSpan() {
+            return rowSpan;
+        }
+
+        public int getColSpan() {
+            return colSpan;
+        }
+
+        public int getPage() {
+            return page;
         }
+
+        public boolean hasPage() {
+            return hasPage;
+        }
+    }
+
+    /**
+     * 为{@link #submitArrangement(List)}中新加入的Item创建View
+     */
+    public interface ItemViewFactory {
+        android.view.View onCreateItemView(DragGridLayout parent, Item item);
     }
 
     public int getRowCount() {
         return rowCount;
     }
 
+    /**
+     * 修改行数，放不下的Item移到空位，所有Item从原来的位置动画到新位置
+     * <p>
+     * 行数保持为rowCount：非分页模式下放不下的Item被隐藏，见{@link #getOverflowViews()}；
+     * 分页模式下放不下的Item移到下一页
+     */
     public void setRowCount(int rowCount) {
+        this.defaultRowCount = rowCount;
+        beginGridTransition();
+        applyRowCount(rowCount);
+        commitGridTransition();
+    }
+
+    /**
+     * 非分页模式下网格放不下而隐藏的Item，增加行数或移除其他Item后会重新显示
+     */
+    public List<View> getOverflowViews() {
+        List<View> views = new ArrayList<>();
+        for (View v : getItemViews()) {
+            if (getLayoutParams(v).overflow) {
+                views.add(v);
+            }
+        }
+        return views;
+    }
+
+    private void applyRowCount(int rowCount) {
         this.rowCount = rowCount;
+        rowTracks.setCount(rowCount);
+        if (lockedCells.getRowCount() != rowCount || lockedCells.getColCount() != colCount) {
+            updateLockedCells();
+        }
     }
 
     public int getColCount() {
         return colCount;
     }
 
+    /**
+     * 修改列数，放不下的Item移到空位，所有Item从原来的位置动画到新位置
+     */
     public void setColCount(int colCount) {
-        this.colCount = colCount;
+        this.defaultColCount = colCount;
+        beginGridTransition();
+        applyColCount(colCount);
+        commitGridTransition();
     }
 
-    public int getRowSpacing() {
-        return rowSpacing;
+    private void applyColCount(int colCount) {
+        this.colCount = colCount;
+        colTracks.setCount(colCount);
+        if (lockedCells.getRowCount() != rowCount || lockedCells.getColCount() != colCount) {
+            updateLockedCells();
+        }
     }
 
-    public void setRowSpacing(int rowSpacing) {
-        this.rowSpacing = rowSpacing;
+    /**
+     * 按当前行列数从lockedMask重新得到lockedCells
+     */
+    private void updateLockedCells() {
+        lockedCells = lockedMask.resize(rowCount, colCount, false);
     }
 
-    public int getColSpacing() {
-        return colSpacing;
+    /**
+     * 锁定区域，锁定的格子不能放入其他Item，其中的Item也不能被拖动、交换或紧凑排列。
+     * 超出当前网格的部分也会保留，网格变大后生效
+     */
+    public void lockCells(int row, int col, int rowSpan, int colSpan) {
+        int rows = Math.max(lockedMask.getRowCount(), row + rowSpan);
+        int cols = Math.max(lockedMask.getColCount(), col + colSpan);
+        if (rows != lockedMask.getRowCount() || cols != lockedMask.getColCount()) {
+            lockedMask = lockedMask.resize(rows, cols, false);
+        }
+        lockedMask.occupy(row, col, rowSpan, colSpan);
+        updateLockedCells();
     }
 
-    public void setColSpacing(int colSpacing) {
-        this.colSpacing = colSpacing;
+    public void unlockCells(int row, int col, int rowSpan, int colSpan) {
+        lockedMask.release(row, col, rowSpan, colSpan);
+        updateLockedCells();
     }
 
-    public boolean isDraggable() {
-        return draggable;
+    public void clearLockedCells() {
+        lockedMask.clear();
+        lockedCells.clear();
     }
 
-    public void setDraggable(boolean draggable) {
-        this.draggable = draggable;
+    public boolean isCellLocked(int row, int col) {
+        return lockedCells.contains(row, col, 1, 1) && lockedCells.isOccupied(row, col);
     }
 
-    public int getDragOrientation() {
-        return dragOrientation;
+    /**
+     * 限制Item只能放在允许的区域内，多次调用可以添加多个区域，跨越多个区域的位置也是允许的
+     */
+    public void addAllowedRegion(View child, int row, int col, int rowSpan, int colSpan) {
+        LayoutParams lp = getLayoutParams(child);
+        if (lp.forbiddenCells == null) {
+            lp.forbiddenCells = new GridOccupancy(rowCount, colCount);
+            lp.forbiddenCells.occupy(0, 0, rowCount, colCount);
+        }
+        lp.forbiddenCells.release(row, col, rowSpan, colSpan);
     }
 
-    public void setDragOrientation(int dragOrientation) {
-        this.dragOrientation = dragOrientation;
+    /**
+     * 清除Item的允许区域，之后可以放在任意位置
+     */
+    public void clearAllowedRegions(View child) {
+        getLayoutParams(child).forbiddenCells = null;
     }
 
-    public boolean isAllowItemOutside() {
-        return allowItemOutside;
+    /**
+     * 区域在网格内的部分是否有锁定的格子
+     */
+    private boolean isAreaLocked(int row, int col, int rowSpan, int colSpan) {
+        if (lockedCells.isEmpty()) {
+            return false;
+        }
+        int rowEnd = Math.min(row + rowSpan, rowCount);
+        int colEnd = Math.min(col + colSpan, colCount);
+        row = Math.max(0, row);
+        col = Math.max(0, col);
+        return row < rowEnd && col < colEnd && !lockedCells.isFree(row, col, rowEnd - row, colEnd - col);
     }
 
-    public void setAllowItemOutside(boolean allowItemOutside) {
-        this.allowItemOutside = allowItemOutside;
+    /**
+     * Item是否在锁定的格子上
+     */
+    private boolean isViewLocked(View v) {
+        LayoutParams lp = getLayoutParams(v);
+        return isAreaLocked(lp.row, lp.col, lp.rowSpan, lp.colSpan);
     }
 
-    public float getDragScale() {
-        return dragScale;
+    /**
+     * Item是否可以从原来的位置移到新位置：两处都没有锁定的格子，且新位置在Item的允许区域内
+     */
+    private boolean canMoveTo(View v, int fromRow, int fromCol, int toRow, int toCol, int rowSpan, int colSpan) {
+        if (fromRow == toRow && fromCol == toCol) {
+            return true;
+        }
+        if (isAreaLocked(fromRow, fromCol, rowSpan, colSpan) || isAreaLocked(toRow, toCol, rowSpan, colSpan)) {
+            return false;
+        }
+        return isInAllowedRegion(getLayoutParams(v), toRow, toCol, rowSpan, colSpan);
     }
 
-    public void setDragScale(float dragScale) {
-        this.dragScale = dragScale;
+    /**
+     * Item在(row, col)时是否在允许区域内，网格变大后新增的格子不在允许区域内
+     */
+    static boolean isInAllowedRegion(LayoutParams lp, int row, int col, int rowSpan, int colSpan) {
+        return lp.forbiddenCells == null || lp.forbiddenCells.isFree(row, col, rowSpan, colSpan);
     }
 
-    public long getAnimationDuration() {
+    /**
+     * 添加宽度断点，布局宽度不小于minWidth时使用对应的列数，宽度小于所有断点时使用{@link #setColCount(int)}的列数
+     *
+     * @param minWidth 最小宽度(px)
+     * @param colCount 列数
+     */
+    public void addColCountBreakpoint(int minWidth, int colCount) {
+        colBreakpoints.put(minWidth, colCount);
+        arrangementCache.clear();
+        requestLayout();
+    }
+
+    public void clearColCountBreakpoints() {
+        colBreakpoints.clear();
+        arrangementCache.clear();
+        requestLayout();
+    }
+
+    /**
+     * 解析形如 "600dp:4,840dp:6" 的断点描述
+     */
+    private void parseColBreakpoints(String spec) {
+        if (spec == null) {
+            return;
+        }
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Invalid column breakpoint \"" + part + "\" in \"" + spec + "\"");
+            }
+            String width = pair[0].trim();
+            try {
+                int minWidth;
+                if (width.endsWith("dp") || width.endsWith("dip")) {
+                    float value = Float.parseFloat(width.substring(0, width.lastIndexOf('d')));
+                    minWidth = Math.round(TypedValue.applyDimension(
+                            TypedValue.COMPLEX_UNIT_DIP, value, getResources().getDisplayMetrics()));
+                } else if (width.endsWith("px")) {
+                    minWidth = Math.round(Float.parseFloat(width.substring(0, width.length() - 2)));
+                } else {
+                    minWidth = Integer.parseInt(width);
+                }
+                colBreakpoints.put(minWidth, Integer.parseInt(pair[1].trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid column breakpoint \"" + part + "\" in \"" + spec + "\"", e);
+            }
+        }
+    }
+
+    private int resolveColCount(int width) {
+        Map.Entry<Integer, Integer> entry = colBreakpoints.floorEntry(width);
+        return entry == null ? defaultColCount : entry.getValue();
+    }
+
+    /**
+     * 切换到新的列数，在当前measure中直接修改LayoutParams，不会触发额外的布局
+     */
+    private void applyBreakpoint(int targetColCount) {
+        if (targetColCount == colCount) {
+            return;
+        }
+        int version = arrangementVersion;
+        GridArrangement leaving = captureArrangement();
+        leaving.version = version;
+        arrangementCache.put(colCount, leaving);
+        GridArrangement cached = arrangementCache.get(targetColCount);
+        applyColCount(targetColCount);
+        if (cached != null && cached.version == version) {
+            restoreArrangement(cached);
+        } else {
+            //缓存之后在其他列数下修改过排列，按当前顺序重新排列
+            reflowArrangement();
+        }
+        arrangementVersion++;
+        //只切换了列数，之前仍然有效的快照继续有效
+        for (int i = 0; i < arrangementCache.size(); i++) {
+            if (arrangementCache.valueAt(i).version == version) {
+                arrangementCache.valueAt(i).version = arrangementVersion;
+            }
+        }
+    }
+
+    private GridArrangement captureArrangement() {
+        GridArrangement arrangement = new GridArrangement(rowCount, colCount);
+        for (int i = 0; i < getChildCount(); i++) {
+            View c = getChildAt(i);
+            LayoutParams lp = getLayoutParams(c);
+            arrangement.put(c, lp.row, lp.col, lp.rowSpan, lp.colSpan);
+        }
+        return arrangement;
+    }
+
+    private void restoreArrangement(GridArrangement arrangement) {
+        applyRowCount(arrangement.rowCount);
+        GridOccupancy occupancy = new GridOccupancy(rowCount, colCount);
+        List<View> pending = new ArrayList<>();
+        //锁定的Item和锁定的格子保持不动，其余Item回到缓存的位置
+        for (View c : keepLockedViews(getFittedChildren(), occupancy)) {
+            int[] cell = arrangement.get(c);
+            LayoutParams lp = getLayoutParams(c);
+            if (cell != null && occupancy.isFree(cell[0], cell[1], lp.rowSpan, lp.colSpan)
+                    && isInAllowedRegion(lp, cell[0], cell[1], lp.rowSpan, lp.colSpan)) {
+                lp.row = cell[0];
+                lp.col = cell[1];
+                occupancy.occupy(lp.row, lp.col, lp.rowSpan, lp.colSpan);
+            } else {
+                //缓存之后新加入的Item
+                pending.add(c);
+            }
+        }
+        placeFirstFit(sortByPosition(pending, true), occupancy, true);
+    }
+
+    /**
+     * 按原来的先行后列顺序依次放到新网格中第一个能放下的位置，结果是确定的。锁定的Item保持不动
+     */
+    private void reflowArrangement() {
+        applyRowCount(defaultRowCount);
+        GridOccupancy occupancy = new GridOccupancy(rowCount, colCount);
+        placeFirstFit(sortByPosition(keepLockedViews(getFittedChildren(), occupancy), true), occupancy, true);
+    }
+
+    /**
+     * 所有子View，跨度已裁剪到当前网格内
+     */
+    private List<View> getFittedChildren() {
+        List<View> children = new ArrayList<>(getChildCount());
+        for (int i = 0; i < getChildCount(); i++) {
+            View c = getChildAt(i);
+            LayoutParams lp = getLayoutParams(c);
+            fitSpan(lp);
+            lp.overflow = false;
+            children.add(c);
+        }
+        return children;
+    }
+
+    /**
+     * 依次把Item放到第一个能放下的位置
+     *
+     * @param grow true时放不下就增加行数，最后只修改一次行数；false时行数不变，放不下的Item隐藏
+     */
+    private void placeFirstFit(List<View> views, GridOccupancy occupancy, boolean grow) {
+        for (View v : views) {
+            LayoutParams lp = getLayoutParams(v);
+            fitSpan(lp);
+            int index = occupancy.findFirstFree(lp.rowSpan, lp.colSpan, lp.forbiddenCells);
+            if (index < 0) {
+                //允许区域内放不下时忽略允许区域，新增的行不在允许区域内
+                index = occupancy.findFirstFree(lp.rowSpan, lp.colSpan);
+            }
+            if (index < 0 && !grow) {
+                lp.overflow = true;
+                continue;
+            }
+            if (index < 0) {
+                occupancy.setRowCount(occupancy.getRowCount() + lp.rowSpan);
+                index = occupancy.findFirstFree(lp.rowSpan, lp.colSpan);
+            }
+            lp.row = index / colCount;
+            lp.col = index % colCount;
+            lp.overflow = false;
+            occupancy.occupy(lp.row, lp.col, lp.rowSpan, lp.colSpan);
+        }
+        if (occupancy.getRowCount() != rowCount) {
+            applyRowCount(occupancy.getRowCount());
+        }
+    }
+
+    /**
+     * 按位置排序
+     *
+     * @param rowMajor true先按行再按列，false先按列再按行
+     */
+    private List<View> sortByPosition(List<View> views, final boolean rowMajor) {
+        Collections.sort(views, new Comparator<View>() {
+            @Override
+            public int compare(View o1, View o2) {
+                LayoutParams p1 = getLayoutParams(o1);
+                LayoutParams p2 = getLayoutParams(o2);
+                int major = rowMajor ? Integer.compare(p1.row, p2.row) : Integer.compare(p1.col, p2.col);
+                if (major != 0) {
+                    return major;
+                }
+                return rowMajor ? Integer.compare(p1.col, p2.col) : Integer.compare(p1.row, p2.row);
+            }
+        });
+        return views;
+    }
+
+    public int getRowSpacing() {
+        return rowSpacing;
+    }
+
+    public void setRowSpacing(int rowSpacing) {
+        beginGridTransition();
+        this.rowSpacing = rowSpacing;
+        rowTracks.setSpacing(rowSpacing);
+        commitGridTransition();
+    }
+
+    public int getColSpacing() {
+        return colSpacing;
+    }
+
+    public void setColSpacing(int colSpacing) {
+        beginGridTransition();
+        this.colSpacing = colSpacing;
+        colTracks.setSpacing(colSpacing);
+        commitGridTransition();
+    }
+
+    /**
+     * 修改网格前记录所有Item的位置，同一次布局前的多次修改只记录第一次
+     */
+    private void beginGridTransition() {
+        if (gridTransitionBounds != null || draggingChild != null || getWidth() == 0) {
+            return;
+        }
+        gridTransitionBounds = new HashMap<>();
+        for (int i = 0; i < getChildCount(); i++) {
+            View c = getChildAt(i);
+            gridTransitionBounds.put(c, new Rect(c.getLeft(), c.getTop(), c.getRight(), c.getBottom()));
+        }
+        animateLayoutChanges(gridTransitionBounds, Collections.<View>emptyList());
+    }
+
+    /**
+     * 修改网格后调整放不下的Item，然后只布局一次
+     */
+    private void commitGridTransition() {
+        if (draggingChild == null) {
+            fitToGrid();
+        }
+        arrangementVersion++;
+        requestLayout();
+    }
+
+    /**
+     * 把跨度裁剪到网格内，网格变大后恢复到裁剪前设置的跨度
+     */
+    private void fitSpan(LayoutParams lp) {
+        if (lp.declaredRowSpan == 0 && lp.rowSpan > rowCount) {
+            lp.declaredRowSpan = lp.rowSpan;
+        }
+        if (lp.declaredRowSpan != 0) {
+            lp.rowSpan = Math.min(lp.declaredRowSpan, rowCount);
+            if (lp.rowSpan == lp.declaredRowSpan) {
+                lp.declaredRowSpan = 0;
+            }
+        }
+        if (lp.declaredColSpan == 0 && lp.colSpan > colCount) {
+            lp.declaredColSpan = lp.colSpan;
+        }
+        if (lp.declaredColSpan != 0) {
+            lp.colSpan = Math.min(lp.declaredColSpan, colCount);
+            if (lp.colSpan == lp.declaredColSpan) {
+                lp.declaredColSpan = 0;
+            }
+        }
+    }
+
+    /**
+     * 超出网格的Item先移回网格内，移回后和其他Item重叠的再按先行后列放到第一个空位
+     * <p>
+     * 行数不变，非分页模式下仍然放不下的Item隐藏；分页模式下从前往后处理每一页，放不下的Item移到下一页。
+     * 锁定的Item保持原位，其他Item不会放到锁定的格子上，并且优先放在各自的允许区域内
+     */
+    private void fitToGrid() {
+        TreeMap<Integer, List<View>> pages = new TreeMap<>();
+        List<View> hidden = new ArrayList<>();
+        for (View v : sortByPosition(getItemViews(), true)) {
+            LayoutParams lp = getLayoutParams(v);
+            fitSpan(lp);
+            if (lp.overflow && !paged) {
+                hidden.add(v);
+                continue;
+            }
+            lp.overflow = false;
+            int page = paged ? lp.page : 0;
+            List<View> views = pages.get(page);
+            if (views == null) {
+                views = new ArrayList<>();
+                pages.put(page, views);
+            }
+            views.add(v);
+        }
+        if (!paged) {
+            GridOccupancy occupancy = new GridOccupancy(rowCount, colCount);
+            List<View> views = pages.get(0);
+            List<View> pending = keepInGrid(views == null ? Collections.<View>emptyList() : views, occupancy);
+            //之前隐藏的Item最后放置，不会挤掉正在显示的Item
+            pending.addAll(hidden);
+            placeFirstFit(pending, occupancy, false);
+            return;
+        }
+        List<View> overflow = new ArrayList<>();
+        int page = pages.isEmpty() ? 0 : pages.firstKey();
+        while (!pages.isEmpty() || !overflow.isEmpty()) {
+            if (overflow.isEmpty()) {
+                page = pages.firstKey();
+            }
+            List<View> views = pages.remove(page);
+            GridOccupancy occupancy = new GridOccupancy(rowCount, colCount);
+            List<View> pending = new ArrayList<>(overflow);
+            pending.addAll(keepInGrid(views == null ? Collections.<View>emptyList() : views, occupancy));
+            //后面都是空页时，再放不下也不会有更合适的页
+            boolean force = views == null && pages.isEmpty();
+            overflow = placeOnPage(pending, occupancy, page, force);
+            page++;
+        }
+    }
+
+    /**
+     * 把Item移回网格内，锁定的Item和锁定的格子先占用，其余没有重叠且在允许区域内的Item直接占用
+     *
+     * @return 需要重新放置的Item
+     */
+    private List<View> keepInGrid(List<View> views, GridOccupancy occupancy) {
+        List<View> pending = new ArrayList<>();
+        for (View v : keepLockedViews(views, occupancy)) {
+            LayoutParams lp = getLayoutParams(v);
+            if (occupancy.isFree(lp.row, lp.col, lp.rowSpan, lp.colSpan) && isInAllowedRegion(lp, lp.row, lp.col, lp.rowSpan, lp.colSpan)) {
+                occupancy.occupy(lp.row, lp.col, lp.rowSpan, lp.colSpan);
+            } else {
+                pending.add(v);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * 把Item移回网格内，锁定的Item在原位占用，然后占用锁定的格子
+     *
+     * @return 没有锁定的Item
+     */
+    private List<View> keepLockedViews(List<View> views, GridOccupancy occupancy) {
+        List<View> unlocked = new ArrayList<>(views.size());
+        for (View v : views) {
+            LayoutParams lp = getLayoutParams(v);
+            lp.col = Math.max(0, Math.min(lp.col, colCount - lp.colSpan));
+            lp.row = Math.max(0, Math.min(lp.row, rowCount - lp.rowSpan));
+            if (isViewLocked(v)) {
+                occupancy.occupy(lp.row, lp.col, lp.rowSpan, lp.colSpan);
+            } else {
+                unlocked.add(v);
+            }
+        }
+        occupancy.addAll(lockedCells);
+        return unlocked;
+    }
+
+    /**
+     * 依次把Item放到page页允许区域内第一个能放下的位置，不增加行数
+     *
+     * @param force 放不下时不再移到下一页：先忽略允许区域，仍然放不下时保持原位
+     * @return 这一页放不下的Item
+     */
+    private List<View> placeOnPage(List<View> views, GridOccupancy occupancy, int page, boolean force) {
+        List<View> overflow = new ArrayList<>();
+        for (View v : views) {
+            LayoutParams lp = getLayoutParams(v);
+            int index = occupancy.findFirstFree(lp.rowSpan, lp.colSpan, lp.forbiddenCells);
+            if (index < 0 && force) {
+                index = occupancy.findFirstFree(lp.rowSpan, lp.colSpan);
+            }
+            if (index < 0) {
+                if (force) {
+                    //锁定的格子太多，任何一页都放不下
+                    lp.page = page;
+                } else {
+                    overflow.add(v);
+                }
+                continue;
+            }
+            lp.page = page;
+            lp.row = index / colCount;
+            lp.col = index % colCount;
+            occupancy.occupy(lp.row, lp.col, lp.rowSpan, lp.colSpan);
+        }
+        return overflow;
+    }
+
+    /**
+     * 设置每行的权重，未指定的行权重为1，设置了固定高度的行忽略权重
+     */
+    public void setRowWeights(float... weights) {
+        rowTracks.setWeights(weights);
+        requestLayout();
+    }
+
+    /**
+     * 设置每列的权重，未指定的列权重为1，设置了固定宽度的列忽略权重
+     */
+    public void setColWeights(float... weights) {
+        colTracks.setWeights(weights);
+        requestLayout();
+    }
+
+    public float getRowWeight(int row) {
+        return rowTracks.getWeight(row);
+    }
+
+    public void setRowWeight(int row, float weight) {
+        rowTracks.setWeight(row, weight);
+        requestLayout();
+    }
+
+    public float getColWeight(int col) {
+        return colTracks.getWeight(col);
+    }
+
+    public void setColWeight(int col, float weight) {
+        colTracks.setWeight(col, weight);
+        requestLayout();
+    }
+
+    public int getRowFixedSize(int row) {
+        return rowTracks.getFixedSize(row);
+    }
+
+    /**
+     * 设置行的固定高度
+     *
+     * @param size 像素，小于0表示按权重分配
+     */
+    public void setRowFixedSize(int row, int size) {
+        rowTracks.setFixedSize(row, size);
+        requestLayout();
+    }
+
+    public int getColFixedSize(int col) {
+        return colTracks.getFixedSize(col);
+    }
+
+    /**
+     * 设置列的固定宽度
+     *
+     * @param size 像素，小于0表示按权重分配
+     */
+    public void setColFixedSize(int col, int size) {
+        colTracks.setFixedSize(col, size);
+        requestLayout();
+    }
+
+    public boolean isDraggable() {
+        return draggable;
+    }
+
+    public void setDraggable(boolean draggable) {
+        this.draggable = draggable;
+    }
+
+    public int getDragOrientation() {
+        return dragOrientation;
+    }
+
+    public void setDragOrientation(int dragOrientation) {
+        this.dragOrientation = dragOrientation;
+    }
+
+    public boolean isAllowItemOutside() {
+        return allowItemOutside;
+    }
+
+    public void setAllowItemOutside(boolean allowItemOutside) {
+        this.allowItemOutside = allowItemOutside;
+    }
+
+    public int getCompactMode() {
+        return compactMode;
+    }
+
+    public void setCompactMode(int compactMode) {
+        this.compactMode = compactMode;
+    }
+
+    public float getDragScale() {
+        return dragScale;
+    }
+
+    public void setDragScale(float dragScale) {
+        this.dragScale = dragScale;
+    }
+
+    public long getAnimationDuration() {
         return animationDuration;
     }
 
@@ -358,59 +1320,72 @@ public class DragGridLayout extends ViewGroup {
         this.animationDuration = animationDuration;
     }
 
-    int cellWidth;
-    int cellHeight;
-
     @Override
     protected void onLayout(boolean changed, int l, int t, int r, int b) {
 
-        cellWidth = getCellWidth();
-        cellHeight = getCellHeight();
+        measureTracks(getWidth(), getHeight());
+
+        if (paged && pageAnimator == null && draggingChild == null) {
+            if (getScrollX() != getPageOffset(currentPage)) {
+                scrollTo(getPageOffset(currentPage), 0);
+            }
+            updateActivePages(currentPage, currentPage);
+        }
 
         for (int i = 0; i < getChildCount(); i++) {
             android.view.View c = getChildAt(i);
-            if (c.getVisibility() == android.view.View.GONE) {
+            if (c.getVisibility() == android.view.View.GONE || !isPageActive(c)) {
                 continue;
             }
-            LayoutParams layoutParams = getLayoutParams(c);
-            int cl = getCellLeft(layoutParams.col);
-            int ct = getCellTop(layoutParams.row);
-            int cr =
-                    cl + layoutParams.colSpan * cellWidth + (layoutParams.colSpan - 1) * colSpacing;
-            int cb =
-                    ct + layoutParams.rowSpan * cellHeight + (layoutParams.rowSpan - 1) * rowSpacing;
-
-            int cWidth = cr - cl;
-            int cHeight = cb - ct;
-            if (cWidth != c.getMeasuredWidth() || cHeight != c.getMeasuredHeight()) {
-                c.measure(
-                        MeasureSpec.makeMeasureSpec(cWidth, MeasureSpec.EXACTLY),
-                        MeasureSpec.makeMeasureSpec(cHeight, MeasureSpec.EXACTLY)
-                );
-            }
-
-            c.layout(cl, ct, cr, cb);
+            layoutChild(c);
+        }
+        gridTransitionBounds = null;
+    }
 
+    /**
+     * 按LayoutParams布局单个Item，分页模式下加上所在页的偏移
+     */
+    private void layoutChild(View c) {
+        LayoutParams layoutParams = getLayoutParams(c);
+        int offset = getPageOffset(layoutParams.page) - getPageOffset(currentPage);
+        int cl = getCellLeft(layoutParams.col) + offset;
+        int ct = getCellTop(layoutParams.row);
+        int cr = getCellRight(layoutParams.col + layoutParams.colSpan - 1) + offset;
+        int cb = getCellBottom(layoutParams.row + layoutParams.rowSpan - 1);
+
+        int cWidth = cr - cl;
+        int cHeight = cb - ct;
+        if (cWidth != c.getMeasuredWidth() || cHeight != c.getMeasuredHeight()) {
+            c.measure(
+                    MeasureSpec.makeMeasureSpec(cWidth, MeasureSpec.EXACTLY),
+                    MeasureSpec.makeMeasureSpec(cHeight, MeasureSpec.EXACTLY)
+            );
         }
+
+        c.layout(cl, ct, cr, cb);
     }
 
 
     @Override
     protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
 
-        if (cellWidth != 0 && cellHeight != 0) {
+        if (!colBreakpoints.isEmpty() && !paged && draggingChild == null
+                && MeasureSpec.getMode(widthMeasureSpec) != MeasureSpec.UNSPECIFIED) {
+            applyBreakpoint(resolveColCount(MeasureSpec.getSize(widthMeasureSpec)));
+        }
+
+        if (getWidth() != 0 && getHeight() != 0) {
+            measureTracks(getWidth(), getHeight());
             for (int i = 0; i < getChildCount(); i++) {
                 android.view.View c = getChildAt(i);
-                if (c.getVisibility() == android.view.View.GONE) {
+                if (c.getVisibility() == android.view.View.GONE || !isPageActive(c)) {
                     continue;
                 }
                 LayoutParams layoutParams = getLayoutParams(c);
                 int cl = getCellLeft(layoutParams.col);
                 int ct = getCellTop(layoutParams.row);
-                int cr =
-                        cl + layoutParams.colSpan * cellWidth + (layoutParams.colSpan - 1) * colSpacing;
-                int cb =
-                        ct + layoutParams.rowSpan * cellHeight + (layoutParams.rowSpan - 1) * rowSpacing;
+                int cr = getCellRight(layoutParams.col + layoutParams.colSpan - 1);
+                int cb = getCellBottom(layoutParams.row + layoutParams.rowSpan - 1);
 
                 int cWidth = cr - cl;
                 int cHeight = cb - ct;
@@ -431,28 +1406,300 @@ public class DragGridLayout extends ViewGroup {
         return getPaddingTop() + getPaddingBottom();
     }
 
-    private int getSumMarginX() {
-        return (colCount - 1) * colSpacing;
+    /**
+     * 根据宽高计算每行每列的前缀和，尺寸和配置未变化时直接返回
+     */
+    private void measureTracks(int width, int height) {
+        colTracks.measure(width - getSumPaddingX());
+        rowTracks.measure(height - getSumPaddingY());
+    }
+
+    public boolean isPaged() {
+        return paged;
+    }
+
+    /**
+     * 设置分页模式，每页都是rowCount x colCount，Item通过{@link LayoutParams#setPage(int)}指定所在页
+     */
+    public void setPaged(boolean paged) {
+        if (this.paged == paged) {
+            return;
+        }
+        this.paged = paged;
+        if (pageAnimator != null) {
+            pageAnimator.cancel();
+        }
+        if (!paged) {
+            currentPage = 0;
+            scrollTo(0, 0);
+        }
+        updateActivePages(currentPage, currentPage);
+        requestLayout();
+    }
+
+    public int getCurrentPage() {
+        return currentPage;
     }
 
-    private int getSumMarginY() {
-        return (rowCount - 1) * rowSpacing;
+    /**
+     * 总页数
+     */
+    public int getPageCount() {
+        int count = 1;
+        for (View v : getItemViews()) {
+            count = Math.max(count, getLayoutParams(v).page + 1);
+        }
+        return count;
     }
 
-    int getCellWidth() {
-        return (getWidth() - getSumPaddingX() - getSumMarginX()) / colCount;
+    public void setCurrentPage(int page) {
+        setCurrentPage(page, true);
     }
 
-    int getCellHeight() {
-        return (getHeight() - getSumPaddingY() - getSumMarginY()) / rowCount;
+    /**
+     * 切换到某一页，只有目标页和相邻页的Item参与测量、布局和绘制
+     */
+    public void setCurrentPage(int page, boolean animate) {
+        if (!paged || page < 0 || page == currentPage) {
+            return;
+        }
+        if (pageAnimator != null) {
+            pageAnimator.cancel();
+        }
+        int fromPage = currentPage;
+        currentPage = page;
+        //滚动过程中经过的页都需要布局和绘制
+        updateActivePages(Math.min(fromPage, page), Math.max(fromPage, page));
+
+        int targetScrollX = getPageOffset(page);
+        if (!animate || getWidth() == 0) {
+            scrollTo(targetScrollX, 0);
+            if (draggingChild == null) {
+                updateActivePages(page, page);
+            }
+            return;
+        }
+        pageAnimator = ValueAnimator.ofInt(getScrollX(), targetScrollX);
+        pageAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                scrollTo((Integer) animation.getAnimatedValue(), 0);
+                if (draggingChild != null && draggingChild.dragging && !draggingChild.dragged) {
+                    //手指不动时被拖动的Item也要跟随滚动
+                    performDragMove();
+                }
+            }
+        });
+        pageAnimator.addListener(new AnimatorListenerAdapter() {
+            private boolean canceled = false;
+
+            @Override
+            public void onAnimationCancel(Animator animation) {
+                canceled = true;
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                pageAnimator = null;
+                if (!canceled && draggingChild == null) {
+                    updateActivePages(currentPage, currentPage);
+                }
+            }
+        });
+        if (animationDuration > -1) {
+            pageAnimator.setDuration(animationDuration);
+        }
+        pageAnimator.start();
+    }
+
+    /**
+     * 只有fromPage-1到toPage+1页的Item参与测量、布局和绘制，其他页的Item保持attach，
+     * 仍然参与状态保存、无障碍和焦点，位置变化后在重新进入范围时才布局
+     */
+    private void updateActivePages(int fromPage, int toPage) {
+        int minPage = paged ? fromPage - 1 : Integer.MIN_VALUE;
+        int maxPage = paged ? toPage + 1 : Integer.MAX_VALUE;
+        if (minPage == activePageMin && maxPage == activePageMax) {
+            return;
+        }
+        int oldMin = activePageMin;
+        int oldMax = activePageMax;
+        activePageMin = minPage;
+        activePageMax = maxPage;
+        if (getWidth() != 0) {
+            for (int i = 0; i < getChildCount(); i++) {
+                View c = getChildAt(i);
+                int page = getLayoutParams(c).page;
+                //只布局新进入范围的Item
+                if (c.getVisibility() != View.GONE && isPageActive(c) && (page < oldMin || page > oldMax)) {
+                    layoutChild(c);
+                }
+            }
+        }
+        invalidate();
+    }
+
+    /**
+     * Item所在页是否参与测量、布局和绘制，拖动和交换中的Item总是参与，放不下而隐藏的Item不参与
+     */
+    private boolean isPageActive(View c) {
+        if (getLayoutParams(c).overflow) {
+            return false;
+        }
+        int page = getLayoutParams(c).page;
+        return !paged || (page >= activePageMin && page <= activePageMax)
+                || acceptView.contains(c) || (draggingChild != null && draggingChild.view == c);
     }
 
+    @Override
+    protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+        return isPageActive(child) && super.drawChild(canvas, child, drawingTime);
+    }
+
+    GridTracks getRowTracks() {
+        return rowTracks;
+    }
+
+    GridTracks getColTracks() {
+        return colTracks;
+    }
+
+    /**
+     * 所有Item
+     */
+    List<View> getItemViews() {
+        List<View> views = new ArrayList<>(getChildCount());
+        for (int i = 0; i < getChildCount(); i++) {
+            views.add(getChildAt(i));
+        }
+        return views;
+    }
+
+    private boolean isOnCurrentPage(View v) {
+        LayoutParams lp = getLayoutParams(v);
+        return !lp.overflow && (!paged || lp.page == currentPage);
+    }
+
+    /**
+     * 被拖动的Item停留在左右边缘时准备翻页
+     */
+    private void updatePageFlip() {
+        int direction = 0;
+        if (currentX < pageEdgeWidth) {
+            direction = -1;
+        } else if (currentX > getWidth() - pageEdgeWidth) {
+            direction = 1;
+        }
+        if (direction == pendingFlipDirection) {
+            return;
+        }
+        cancelPageFlip();
+        if (direction != 0 && pageAnimator == null) {
+            pendingFlipDirection = direction;
+            postDelayed(pageFlipRunnable, PAGE_FLIP_DWELL);
+        }
+    }
+
+    private void cancelPageFlip() {
+        pendingFlipDirection = 0;
+        removeCallbacks(pageFlipRunnable);
+    }
+
+    private final Runnable pageFlipRunnable = new Runnable() {
+        @Override
+        public void run() {
+            int direction = pendingFlipDirection;
+            pendingFlipDirection = 0;
+            if (draggingChild != null && draggingChild.dragging && !draggingChild.dragged && dragGroup.isEmpty()) {
+                flipDraggingChild(currentPage + direction);
+            }
+        }
+    };
+
+    /**
+     * 把被拖动的Item移到另一页，优先放在手指下的格子，否则放在允许区域内第一个空位，其他页的Item不受影响
+     *
+     * @return Item被锁定或目标页没有可以放置的空位时返回false
+     */
+    private boolean flipDraggingChild(int page) {
+        if (page < 0 || page > getPageCount()) {
+            return false;
+        }
+        Target dragging = draggingChild;
+        if (isAreaLocked(dragging.row, dragging.col, dragging.rowSpan, dragging.colSpan)) {
+            return false;
+        }
+        LayoutParams lp = getLayoutParams(dragging.view);
+        //锁定的格子已经在occupancy中
+        GridOccupancy occupancy = buildOccupancy(page, dragging.view);
+        int row = Math.max(0, Math.min(getRowAt((int) currentY), rowCount - dragging.rowSpan));
+        int col = Math.max(0, Math.min(colTracks.indexAt((int) currentX - getPaddingLeft()), colCount - dragging.colSpan));
+        if (!occupancy.isFree(row, col, dragging.rowSpan, dragging.colSpan)
+                || !isInAllowedRegion(lp, row, col, dragging.rowSpan, dragging.colSpan)) {
+            int cell = occupancy.findFirstFree(dragging.rowSpan, dragging.colSpan, lp.forbiddenCells);
+            if (cell < 0) {
+                return false;
+            }
+            row = cell / colCount;
+            col = cell % colCount;
+        }
+        lp.page = page;
+        dragging.row = row;
+        dragging.col = col;
+        dragging.targetRow = row;
+        dragging.targetCol = col;
+        dirtyRow = row;
+        dirtyCol = col;
+        setCurrentPage(page, true);
+        buildSwapTable(dragging);
+        invalidate();
+        return true;
+    }
+
+    /**
+     * 分页模式下第page页相对第0页的偏移
+     */
+    private int getPageOffset(int page) {
+        return paged ? page * getWidth() : 0;
+    }
+
+    /**
+     * 当前页中col列的左边
+     */
     private int getCellLeft(int col) {
-        return getPaddingLeft() + col * colSpacing + col * getCellWidth();
+        measureTracks(getWidth(), getHeight());
+        return getPaddingLeft() + colTracks.start(col) + getPageOffset(currentPage);
     }
 
     private int getCellTop(int row) {
-        return getPaddingTop() + row * rowSpacing + row * getCellHeight();
+        measureTracks(getWidth(), getHeight());
+        return getPaddingTop() + rowTracks.start(row);
+    }
+
+    private int getCellRight(int col) {
+        measureTracks(getWidth(), getHeight());
+        return getPaddingLeft() + colTracks.end(col) + getPageOffset(currentPage);
+    }
+
+    private int getCellBottom(int row) {
+        measureTracks(getWidth(), getHeight());
+        return getPaddingTop() + rowTracks.end(row);
+    }
+
+    /**
+     * 坐标x所在的列，分页模式下x为包含滚动距离的坐标
+     */
+    public int getColAt(int x) {
+        measureTracks(getWidth(), getHeight());
+        return colTracks.indexAt(x - getPaddingLeft() - getPageOffset(currentPage));
+    }
+
+    /**
+     * 坐标y所在的行
+     */
+    public int getRowAt(int y) {
+        measureTracks(getWidth(), getHeight());
+        return rowTracks.indexAt(y - getPaddingTop());
     }
 
     private LayoutParams getLayoutParams(android.view.View c) {
@@ -463,6 +1710,47 @@ public class DragGridLayout extends ViewGroup {
     private float downY = 0f;
     private float currentX = 0f;
     private float currentY = 0f;
+    private float currentRawX = 0f;
+    private float currentRawY = 0f;
+
+    /**
+     * 控制拖动的手指
+     */
+    private int activePointerId = MotionEvent.INVALID_POINTER_ID;
+
+    /**
+     * 滑动多少距离后触发拖动操作，按屏幕密度缩放
+     */
+    private int touchSlop;
+
+    /**
+     * 按住不动多长时间后触发拖动操作
+     */
+    private int longPressTimeout;
+
+    /**
+     * 按住超过多长时间后预先建立交换候选表，更短的点击不需要
+     */
+    private int tapTimeout;
+
+    /**
+     * 开始拖动时开启硬件层的Item，以及它原来的layerType
+     */
+    private View preparedLayerView;
+    private int preparedLayerType;
+
+    /**
+     * 按下时是否已经建立了交换候选表
+     */
+    private boolean swapTablePrepared = false;
+
+    private void updateCurrent(MotionEvent ev, int pointerIndex) {
+        currentX = ev.getX(pointerIndex);
+        currentY = ev.getY(pointerIndex);
+        //getRawX()只对应第一个手指，其他手指加上相同的偏移
+        currentRawX = currentX + ev.getRawX() - ev.getX();
+        currentRawY = currentY + ev.getRawY() - ev.getY();
+    }
 
     private final Runnable determineClickRunnable = new Runnable() {
         @Override
@@ -483,41 +1771,84 @@ public class DragGridLayout extends ViewGroup {
 
     @Override
     public boolean dispatchTouchEvent(MotionEvent ev) {
-        switch (ev.getAction()) {
+        switch (ev.getActionMasked()) {
             case MotionEvent.ACTION_DOWN:
-                downX = ev.getX();
-                downY = ev.getY();
-                currentX = ev.getX();
-                currentY = ev.getY();
+                activePointerId = ev.getPointerId(0);
+                updateCurrent(ev, 0);
+                downX = currentX;
+                downY = currentY;
                 if (draggable && draggingChild == null) {
-                    View child = findTopChildUnder((int) ev.getX(), (int) ev.getY());
-                    if (child != null) {
+                    View child = findTopChildUnder((int) currentX + getScrollX(), (int) currentY);
+                    if (child != null && !isViewLocked(child)) {
                         //找到拖拽目标
                         prepareDrag(child);
-                        postDelayed(determineClickRunnable, CLICK_TIME_OUT);
+                        postDelayed(determineClickRunnable, longPressTimeout);
                     }
                 }
                 break;
-            case MotionEvent.ACTION_MOVE:
-                currentX = ev.getX();
-                currentY = ev.getY();
+            case MotionEvent.ACTION_MOVE: {
+                int pointerIndex = ev.findPointerIndex(activePointerId);
+                if (pointerIndex < 0) {
+                    break;
+                }
+                updateCurrent(ev, pointerIndex);
                 if (draggable && draggingChild != null && !draggingChild.dragging && !draggingChild.dragged) {
-                    if (Math.abs(currentX - downX) > DRAG_SLOP || Math.abs(currentY - downY) > DRAG_SLOP) {
+                    float dx = currentX - downX;
+                    float dy = currentY - downY;
+                    if (dx * dx + dy * dy > touchSlop * touchSlop) {
                         Log.i(TAG, "startDragChild ACTION_MOVE");
                         startDragChild(draggingChild);
                     }
                 }
                 break;
+            }
+            case MotionEvent.ACTION_POINTER_UP: {
+                int pointerIndex = ev.getActionIndex();
+                if (ev.getPointerId(pointerIndex) == activePointerId) {
+                    //控制拖动的手指抬起，换成另一个手指继续拖动，Item位置保持不变
+                    float oldX = currentX;
+                    float oldY = currentY;
+                    int newIndex = pointerIndex == 0 ? 1 : 0;
+                    activePointerId = ev.getPointerId(newIndex);
+                    updateCurrent(ev, newIndex);
+                    downX += currentX - oldX;
+                    downY += currentY - oldY;
+                    draggingFingerStartX += currentX - oldX;
+                    draggingFingerStartY += currentY - oldY;
+                }
+                break;
+            }
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
                 Log.i(TAG, "ACTION_CANCEL");
                 getParent().requestDisallowInterceptTouchEvent(false);
                 removeCallbacks(determineClickRunnable);
+                activePointerId = MotionEvent.INVALID_POINTER_ID;
                 if (draggable && draggingChild != null && draggingChild.dragging && !draggingChild.dragged) {
                     draggingChild.setDragging(false);
-                    animateTarget(draggingChild);
-                } else {
+                    boolean dropped = false;
+                    if (!dragGroup.isEmpty()) {
+                        dropGroup();
+                        dropped = true;
+                    } else if (dragController != null && dragController.isDragging()) {
+                        if (ev.getActionMasked() == MotionEvent.ACTION_UP) {
+                            dropped = dragController.drop(currentRawX, currentRawY);
+                        } else {
+                            dragController.endDrag();
+                        }
+                    }
+                    if (!dropped) {
+                        animateTarget(draggingChild);
+                    }
+                } else if (draggingChild == null || !draggingChild.dragged) {
+                    //点击或者没有开始拖动，撤销按下时的准备；松手动画还没结束时由resetTarget处理
+                    releasePreparedDrag();
+                    boolean prepared = draggingChild != null;
                     draggingChild = null;
+                    if (prepared) {
+                        //按下期间收到的修改和排列被推迟了
+                        flushDeferredChanges();
+                    }
                 }
                 break;
 
@@ -531,72 +1862,116 @@ public class DragGridLayout extends ViewGroup {
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
 
-        if (draggingChild != null) {
+        if (!dragGroup.isEmpty()) {
+            if (groupValid) {
+                Rect rect = new Rect();
+                for (Target t : dragGroup) {
+                    rect.left = getCellLeft(t.targetCol) - 10;
+                    rect.top = getCellTop(t.targetRow) - 10;
+                    rect.right = getCellRight(t.targetCol + t.colSpan - 1) + 10;
+                    rect.bottom = getCellBottom(t.targetRow + t.rowSpan - 1) + 10;
+                    canvas.drawRect(rect, paint);
+                }
+            }
+        } else if (draggingChild != null) {
             Rect rect = new Rect();
             rect.left = getCellLeft(draggingChild.targetCol) - 10;
             rect.top = getCellTop(draggingChild.targetRow) - 10;
-            rect.right = getCellLeft(draggingChild.targetCol + draggingChild.colSpan - 1) + cellWidth + 10;
-            rect.bottom = getCellTop(draggingChild.targetRow + draggingChild.rowSpan - 1) + cellHeight + 10;
+            rect.right = getCellRight(draggingChild.targetCol + draggingChild.colSpan - 1) + 10;
+            rect.bottom = getCellBottom(draggingChild.targetRow + draggingChild.rowSpan - 1) + 10;
             canvas.drawRect(rect, paint);
         }
+
+        if (showDropHint) {
+            canvas.drawRect(dropHint, paint);
+        }
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent ev) {
-        switch (ev.getAction()) {
+        switch (ev.getActionMasked()) {
             case MotionEvent.ACTION_MOVE:
                 Log.i(TAG, "onTouchEvent : ACTION_MOVE");
                 if (draggingChild != null && draggingChild.dragging && !draggingChild.dragged) {
-                    if (dragOrientation == ORIENTATION_ALL || dragOrientation == ORIENTATION_HORIZONTAL) {
-                        float x = (currentX - draggingFingerStartX);
-                        Log.i(TAG, "onTouchEvent : ACTION_MOVE : draggingChildStartX :" + draggingChildStartX + ",currentX:" + currentX + ",draggingFingerStartX:" + draggingFingerStartX);
-                        if (!allowItemOutside) {
-                            if (x < 0 && Math.abs(x) > draggingChild.view.getLeft()) {
-                                x = -draggingChild.view.getLeft();
-                            } else if (x > 0 && x > (getWidth() - draggingChild.view.getRight())) {
-                                x = getWidth() - draggingChild.view.getRight();
-                            }
+                    if (dragController != null && dragController.isDragging()) {
+                        if (currentX < 0 || currentY < 0 || currentX >= getWidth() || currentY >= getHeight()) {
+                            //手指离开当前DragGridLayout，交给DragController在overlay上绘制
+                            dragController.dragOutside(currentRawX, currentRawY);
+                            break;
                         }
-                        draggingChild.view.setTranslationX(x);
-                        targetRect.left = draggingChild.view.getLeft() + (int) x;
-                        targetRect.right = draggingChild.view.getRight() + (int) x;
+                        dragController.dragInside();
                     }
-                    if (dragOrientation == ORIENTATION_ALL || dragOrientation == ORIENTATION_VERTICAL) {
-                        float y = currentY - draggingFingerStartY;
-                        if (!allowItemOutside) {
-                            if (y < 0 && Math.abs(y) > draggingChild.view.getTop()) {
-                                y = -draggingChild.view.getTop();
-                            } else if (y > 0 && y > getHeight() - draggingChild.view.getBottom()) {
-                                y = getHeight() - draggingChild.view.getBottom();
-                            }
-                        }
-                        draggingChild.view.setTranslationY(y);
-                        targetRect.top = draggingChild.view.getTop() + (int) y;
-                        targetRect.bottom = draggingChild.view.getBottom() + (int) y;
-                    }
-
-                    Target dragging = new Target(draggingChild);
+                    performDragMove();
+                }
 
-                    List<Target> underView = findAcceptChildUnder(dragging);
-                    for (Target t : underView) {
-                        if (!acceptView.contains(t.view)) {
-                            acceptView.add(t.view);
-                            draggingChild = dragging;
-                            invalidate();
-                            animateAccept(t);
-                        }
-                    }
+        }
+        return true;
+    }
 
+    /**
+     * 根据手指位置移动被拖动的Item，并计算交换
+     */
+    private void performDragMove() {
+        if (dragOrientation == ORIENTATION_ALL || dragOrientation == ORIENTATION_HORIZONTAL) {
+            //分页模式下加上拖动过程中的滚动距离，Item保持在手指下
+            float x = (currentX - draggingFingerStartX) + (getScrollX() - dragStartScrollX);
+            Log.i(TAG, "onTouchEvent : ACTION_MOVE : draggingChildStartX :" + draggingChildStartX + ",currentX:" + currentX + ",draggingFingerStartX:" + draggingFingerStartX);
+            if (!allowItemOutside) {
+                x = Math.max(x, getScrollX() - dragBounds.left);
+                x = Math.min(x, getScrollX() + getWidth() - dragBounds.right);
+            }
+            draggingChild.view.setTranslationX(x);
+            for (Target t : dragGroup) {
+                t.view.setTranslationX(x);
+            }
+            targetRect.left = draggingChild.view.getLeft() + (int) x;
+            targetRect.right = draggingChild.view.getRight() + (int) x;
+        }
+        if (dragOrientation == ORIENTATION_ALL || dragOrientation == ORIENTATION_VERTICAL) {
+            float y = currentY - draggingFingerStartY;
+            if (!allowItemOutside) {
+                if (y < 0 && Math.abs(y) > dragBounds.top) {
+                    y = -dragBounds.top;
+                } else if (y > 0 && y > getHeight() - dragBounds.bottom) {
+                    y = getHeight() - dragBounds.bottom;
                 }
+            }
+            draggingChild.view.setTranslationY(y);
+            for (Target t : dragGroup) {
+                t.view.setTranslationY(y);
+            }
+            targetRect.top = draggingChild.view.getTop() + (int) y;
+            targetRect.bottom = draggingChild.view.getBottom() + (int) y;
+        }
 
+        if (!dragGroup.isEmpty()) {
+            resolveGroupFootprint();
+            return;
+        }
+
+        if (paged) {
+            updatePageFlip();
+        }
+
+        Target dragging = new Target(draggingChild);
+
+        List<Target> underView = findAcceptChildUnder(dragging);
+        for (Target t : underView) {
+            if (!acceptView.contains(t.view)) {
+                acceptView.add(t.view);
+                draggingChild = dragging;
+                markDirty(t.targetRow, t.targetCol);
+                markDirty(dragging.targetRow, dragging.targetCol);
+                invalidate();
+                animateAccept(t);
+            }
         }
-        return true;
     }
 
     private android.view.View findTopChildUnder(float x, float y) {
         for (int i = getChildCount() - 1; i >= 0; i--) {
             android.view.View child = getChildAt(i);
-            if (acceptView.contains(child)) {
+            if (acceptView.contains(child) || !isPageActive(child)) {
                 continue;
             }
             if (x >= child.getLeft() && x < child.getRight() && y >= child.getTop() && y < child.getBottom()
@@ -666,83 +2041,165 @@ public class DragGridLayout extends ViewGroup {
         }
     }
 
+    /**
+     * {@link ReorderRules#resolve}的输出
+     */
+    private final int[] swapResult = new int[4];
+
+    /**
+     * 拖动开始时建立，拖动过程中查找交换的Item只需要查表
+     */
+    private final SwapCandidateTable swapTable = new SwapCandidateTable();
+
+    /**
+     * 按位置排序的Item，紧凑排列时不需要每次重新排序
+     */
+    private final CompactionIndex<View> compactionIndex = new CompactionIndex<>();
+
+    /**
+     * 按被拖动Item的跨度建立当前页的交换候选表
+     */
+    private void buildSwapTable(Target draggingTarget) {
+        List<View> views = new ArrayList<>(getChildCount());
+        for (int i = 0; i < getChildCount(); i++) {
+            View c = getChildAt(i);
+            if (c != draggingTarget.view && c.getVisibility() != View.GONE && isOnCurrentPage(c)) {
+                views.add(c);
+            }
+        }
+        swapTable.build(rowCount, colCount, draggingTarget.rowSpan, draggingTarget.colSpan, views);
+    }
+
     private List<Target> findAcceptChildUnder(Target draggingTarget) {
-        Log.i(TAG, "findAcceptChildUnder x:" + draggingTarget.view.getX() + ",y:" + draggingTarget.view.getY() + ",left:" + draggingTarget.view.getLeft() + ",right:" + draggingTarget.view.getRight());
-        Rect childRect = null;
         List<Target> result = new ArrayList<>();
-        for (int i = getChildCount() - 1; i >= 0; i--) {
-            android.view.View child = getChildAt(i);
-            if (acceptView.contains(child)) {
-                continue;
-            }
-            childRect = new Rect(child.getLeft(), child.getTop(), child.getRight(), child.getBottom());
-            if (child != draggingTarget.view && childRect.contains(targetRect.centerX(), targetRect.centerY())) {
-                LayoutParams layoutParams = getLayoutParams(child);
-                LayoutParams targetParams = getLayoutParams(draggingTarget.view);
-
-                if (layoutParams.rowSpan == targetParams.rowSpan && layoutParams.colSpan == targetParams.colSpan) {
-                    Target target = new Target(child, draggingTarget.row, draggingTarget.col, draggingTarget.rowSpan, draggingTarget.colSpan);
-                    draggingTarget.row = layoutParams.row;
-                    draggingTarget.col = layoutParams.col;
-                    draggingTarget.targetRow = layoutParams.row;
-                    draggingTarget.targetCol = layoutParams.col;
-                    result.add(target);
-                    return result;
-                } else if (layoutParams.rowSpan == targetParams.rowSpan && layoutParams.row == draggingTarget.row) {//同一行且行高一样
-                    if (layoutParams.col > draggingTarget.col && draggingTarget.col + targetParams.colSpan == layoutParams.col) { //在移动item的右边
-                        Target target = new Target(child, draggingTarget.row, draggingTarget.col, draggingTarget.rowSpan, draggingTarget.colSpan);
-                        draggingTarget.targetCol = target.col + layoutParams.colSpan;
-                        draggingTarget.col = target.col + layoutParams.colSpan;
-                        result.add(target);
-                        return result;
-                    } else if (layoutParams.col + layoutParams.colSpan == draggingTarget.col) { //在移动item的左边
-                        Target target = new Target(
-                                child,
-                                layoutParams.row,
-                                layoutParams.col + draggingTarget.colSpan, draggingTarget.rowSpan, draggingTarget.colSpan
-                        );
-                        draggingTarget.targetCol = target.col - draggingTarget.colSpan;
-                        draggingTarget.col = target.col - draggingTarget.colSpan;
-                        result.add(target);
-                        return result;
-                    }
-                } else if (layoutParams.colSpan == targetParams.colSpan && layoutParams.col == draggingTarget.col) {//同一列且宽一样
-                    if (layoutParams.row > draggingTarget.row && draggingTarget.row + targetParams.rowSpan == layoutParams.row) {//在移动item的下面
-                        Target target = new Target(child, draggingTarget.row, draggingTarget.col, draggingTarget.rowSpan, draggingTarget.colSpan);
-                        draggingTarget.targetRow = target.row + layoutParams.rowSpan;
-                        draggingTarget.row = target.row + layoutParams.rowSpan;
-                        result.add(target);
-                        return result;
-                    } else if (layoutParams.row + layoutParams.rowSpan == draggingTarget.row) {//在移动item的上面
-                        Target target = new Target(
-                                child,
-                                layoutParams.row + draggingTarget.rowSpan,
-                                layoutParams.col, draggingTarget.rowSpan, draggingTarget.colSpan
-                        );
-                        draggingTarget.targetRow = target.row - draggingTarget.rowSpan;
-                        draggingTarget.row = target.row - draggingTarget.rowSpan;
-                        result.add(target);
-                        return result;
-                    }
-                }
-            }
+        int x = targetRect.centerX();
+        int y = targetRect.centerY();
+        int index = swapTable.findAt(getRowAt(y), getColAt(x));
+        if (index < 0) {
+            return result;
+        }
+        View child = swapTable.getView(index);
+        //格子之间的间距不算在Item内
+        if (acceptView.contains(child)
+                || x < child.getLeft() || x >= child.getRight() || y < child.getTop() || y >= child.getBottom()) {
+            return result;
+        }
+        LayoutParams childParams = getLayoutParams(child);
+        if (swapTable.resolve(index, draggingTarget.row, draggingTarget.col, swapResult)
+                && canMoveTo(draggingTarget.view, draggingTarget.row, draggingTarget.col,
+                swapResult[2], swapResult[3], draggingTarget.rowSpan, draggingTarget.colSpan)
+                && canMoveTo(child, childParams.row, childParams.col,
+                swapResult[0], swapResult[1], childParams.rowSpan, childParams.colSpan)) {
+            Target target = new Target(child, swapResult[0], swapResult[1], draggingTarget.rowSpan, draggingTarget.colSpan);
+            draggingTarget.row = swapResult[2];
+            draggingTarget.col = swapResult[3];
+            draggingTarget.targetRow = swapResult[2];
+            draggingTarget.targetCol = swapResult[3];
+            swapTable.move(index, swapResult[0], swapResult[1]);
+            result.add(target);
         }
         return result;
     }
 
     Target draggingChild = null;
     final Rect targetRect = new Rect();
+
+    /**
+     * 拖动开始时被拖动Item(多选时为所有选中Item)的范围，用于限制拖动不超出边界
+     */
+    final Rect dragBounds = new Rect();
+
+    /**
+     * 多选的Item
+     */
+    private final Set<View> selectedViews = new LinkedHashSet<>();
+
+    /**
+     * 一起拖动的多个Item，包含draggingChild，单个Item拖动时为空
+     */
+    final List<Target> dragGroup = new ArrayList<>();
+
+    /**
+     * 不包含dragGroup的占用情况，拖动开始时计算一次
+     */
+    private GridOccupancy groupOccupancy;
+
+    /**
+     * 拖动开始时手指下的行列，用于计算整组移动的行列偏移
+     */
+    private int groupAnchorRow;
+    private int groupAnchorCol;
+
+    /**
+     * 当前偏移下整组Item是否都可以放下
+     */
+    private boolean groupValid = false;
     final Set<View> acceptView = new HashSet<>();
 
+    /**
+     * 本次拖动影响到的最小行列，紧凑排列时只重新计算这之后的Item
+     */
+    int dirtyRow = 0;
+    int dirtyCol = 0;
+
     float draggingChildStartX = 0f;
     float draggingChildStartY = 0f;
     float draggingFingerStartX = 0f;
     float draggingFingerStartY = 0f;
+    float dragStartScrollX = 0f;
 
     private void prepareDrag(View view) {
         LayoutParams layoutParams = getLayoutParams(view);
         draggingChild = new Target(view, layoutParams.row, layoutParams.col, layoutParams.rowSpan, layoutParams.colSpan);
         targetRect.set(view.getLeft(), view.getTop(), view.getRight(), view.getBottom());
+        dragBounds.set(targetRect);
+        dirtyRow = layoutParams.row;
+        dirtyCol = layoutParams.col;
+
+        //按住超过点击时间后，在等待长按或者滑动的同时预先建立交换候选表
+        postDelayed(prepareSwapTableRunnable, tapTimeout);
+    }
+
+    private final Runnable prepareSwapTableRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (draggingChild != null && !draggingChild.dragging && !draggingChild.dragged && !swapTablePrepared
+                    && (selectedViews.size() <= 1 || !selectedViews.contains(draggingChild.view))) {
+                buildSwapTable(draggingChild);
+                swapTablePrepared = true;
+            }
+        }
+    };
+
+    /**
+     * 开始拖动时开启硬件层，拖动中的缩放和移动只需要合成
+     */
+    private void enableDragLayer(View view) {
+        preparedLayerView = view;
+        preparedLayerType = view.getLayerType();
+        if (preparedLayerType != LAYER_TYPE_HARDWARE) {
+            view.setLayerType(LAYER_TYPE_HARDWARE, null);
+        }
+    }
+
+    /**
+     * 撤销按下和开始拖动时的准备，恢复原来的layerType
+     */
+    private void releasePreparedDrag() {
+        removeCallbacks(prepareSwapTableRunnable);
+        if (preparedLayerView != null) {
+            if (preparedLayerView.getLayerType() != preparedLayerType) {
+                preparedLayerView.setLayerType(preparedLayerType, null);
+            }
+            preparedLayerView = null;
+        }
+        swapTablePrepared = false;
+        swapTable.clear();
+    }
+
+    private void markDirty(int row, int col) {
+        dirtyRow = Math.min(dirtyRow, row);
+        dirtyCol = Math.min(dirtyCol, col);
     }
 
     private void startDragChild(Target draggingTarget) {
@@ -755,42 +2212,299 @@ public class DragGridLayout extends ViewGroup {
         this.draggingChildStartY = draggingChild.view.getY();
         draggingFingerStartX = currentX;
         draggingFingerStartY = currentY;
+        dragStartScrollX = getScrollX();
+        enableDragLayer(draggingChild.view);
         draggingChild.view.setElevation(10f);
         draggingChild.view.animate()
                 .scaleX(dragScale)
                 .scaleY(dragScale)
                 .start();
+        if (selectedViews.size() > 1 && selectedViews.contains(draggingChild.view)) {
+            startDragGroup();
+        } else if (!swapTablePrepared) {
+            buildSwapTable(draggingChild);
+        }
         updateActiveStatus(draggingChild);
 
+        if (dragController != null && dragGroup.isEmpty()) {
+            dragController.startDrag(this, draggingChild.view, draggingChild.rowSpan, draggingChild.colSpan, currentRawX, currentRawY);
+        }
+
         if (onDragStatusChangedListener != null) {
             onDragStatusChangedListener.onDragStart(draggingChild.view);
         }
     }
 
+    /**
+     * 被拖动的Item放入了其他DragGridLayout，结束拖动并移除
+     */
+    void releaseToForeignGrid(View view) {
+        draggingChild = null;
+        releasePreparedDrag();
+        view.animate().setListener(null);
+        view.animate().cancel();
+        view.setScaleX(1f);
+        view.setScaleY(1f);
+        view.setTranslationX(0f);
+        view.setTranslationY(0f);
+        view.setElevation(0f);
+        updateActiveStatus(null);
+        arrangementVersion++;
+        removeView(view);
+        invalidate();
+
+        if (onDragStatusChangedListener != null) {
+            onDragStatusChangedListener.onDragEnd(view);
+        }
+
+        if (compactMode != COMPACT_NONE) {
+            compact();
+        }
+
+        flushDeferredChanges();
+    }
+
+    /**
+     * 从其他DragGridLayout拖入Item
+     */
+    void acceptForeignDrop(View view, int row, int col, int rowSpan, int colSpan) {
+        clearDropHint();
+        LayoutParams lp = new LayoutParams(row, col, rowSpan, colSpan);
+        lp.itemId = getLayoutParams(view).itemId;
+        lp.hasItemId = getLayoutParams(view).hasItemId;
+        GridOccupancy forbidden = getLayoutParams(view).forbiddenCells;
+        lp.forbiddenCells = forbidden == null ? null : forbidden.copy();
+        lp.page = currentPage;
+        addView(view, lp);
+        arrangementVersion++;
+
+        if (onDragStatusChangedListener != null) {
+            onDragStatusChangedListener.onItemPositionChanged(view, true);
+        }
+
+        if (compactMode != COMPACT_NONE) {
+            //等新加入的Item布局完成后再紧凑排列
+            post(compactRunnable);
+        }
+    }
+
+    private final Runnable compactRunnable = new Runnable() {
+        @Override
+        public void run() {
+            compact();
+        }
+    };
+
+    /**
+     * 当前所有Item的占用情况
+     *
+     * @param exclude 不计算在内的Item
+     */
+    GridOccupancy buildOccupancy(View exclude) {
+        return buildOccupancy(currentPage, exclude);
+    }
+
+    /**
+     * 某一页所有Item的占用情况，非分页模式下page无效
+     */
+    private GridOccupancy buildOccupancy(int page, View exclude) {
+        GridOccupancy occupancy = new GridOccupancy(rowCount, colCount);
+        for (View c : getItemViews()) {
+            if (c == exclude || c.getVisibility() == View.GONE || getLayoutParams(c).overflow
+                    || (paged && getLayoutParams(c).page != page)) {
+                continue;
+            }
+            LayoutParams lp = getLayoutParams(c);
+            occupancy.occupy(lp.row, lp.col, lp.rowSpan, lp.colSpan);
+        }
+        //锁定的格子视为已占用
+        occupancy.addAll(lockedCells);
+        return occupancy;
+    }
+
+    private final Rect dropHint = new Rect();
+    private boolean showDropHint = false;
+
+    /**
+     * 显示其他DragGridLayout拖入的Item将要放置的位置
+     */
+    void showDropHint(int row, int col, int rowSpan, int colSpan) {
+        dropHint.set(
+                getCellLeft(col) - 10,
+                getCellTop(row) - 10,
+                getCellRight(col + colSpan - 1) + 10,
+                getCellBottom(row + rowSpan - 1) + 10
+        );
+        showDropHint = true;
+        invalidate();
+    }
+
+    void clearDropHint() {
+        if (showDropHint) {
+            showDropHint = false;
+            invalidate();
+        }
+    }
+
+    /**
+     * 多选时一起拖动所有选中的Item，占用情况只计算一次
+     */
+    private void startDragGroup() {
+        dragGroup.clear();
+        dragGroup.add(draggingChild);
+        for (View v : selectedViews) {
+            if (v == draggingChild.view || v.getVisibility() == View.GONE) {
+                continue;
+            }
+            if (isViewLocked(v)) {
+                continue;
+            }
+            LayoutParams lp = getLayoutParams(v);
+            dragGroup.add(new Target(v, lp.row, lp.col, lp.rowSpan, lp.colSpan));
+            dragBounds.union(v.getLeft(), v.getTop(), v.getRight(), v.getBottom());
+            v.setElevation(9f);
+        }
+        groupOccupancy = buildOccupancy(draggingChild.view);
+        for (Target t : dragGroup) {
+            groupOccupancy.release(t.row, t.col, t.rowSpan, t.colSpan);
+        }
+        groupOccupancy.addAll(lockedCells);
+        groupAnchorRow = getRowAt(targetRect.centerY());
+        groupAnchorCol = getColAt(targetRect.centerX());
+        groupValid = false;
+    }
+
+    /**
+     * 一次计算整组Item在当前偏移下的占用区域是否可以放下
+     */
+    private void resolveGroupFootprint() {
+        int rowOffset = getRowAt(targetRect.centerY()) - groupAnchorRow;
+        int colOffset = getColAt(targetRect.centerX()) - groupAnchorCol;
+        boolean valid = true;
+        for (Target t : dragGroup) {
+            if (!groupOccupancy.isFree(t.row + rowOffset, t.col + colOffset, t.rowSpan, t.colSpan)
+                    || !canMoveTo(t.view, t.row, t.col, t.row + rowOffset, t.col + colOffset, t.rowSpan, t.colSpan)) {
+                valid = false;
+                break;
+            }
+        }
+        boolean changed = valid != groupValid;
+        for (Target t : dragGroup) {
+            int row = valid ? t.row + rowOffset : t.row;
+            int col = valid ? t.col + colOffset : t.col;
+            changed |= t.targetRow != row || t.targetCol != col;
+            t.targetRow = row;
+            t.targetCol = col;
+        }
+        groupValid = valid;
+        if (changed) {
+            invalidate();
+        }
+    }
+
+    /**
+     * 整组放下，放不下时全部回到原来的位置
+     */
+    private void dropGroup() {
+        Target primary = draggingChild;
+        for (Target t : dragGroup) {
+            markDirty(t.row, t.col);
+            markDirty(t.targetRow, t.targetCol);
+            if (t != primary) {
+                acceptView.add(t.view);
+                animateAccept(t);
+            }
+        }
+        dragGroup.clear();
+        groupOccupancy = null;
+        groupValid = false;
+        animateTarget(primary);
+    }
+
+    /**
+     * 设置Item是否被多选，拖动被多选的Item时所有选中的Item一起移动
+     */
+    public void setItemSelected(View child, boolean selected) {
+        boolean changed = selected ? selectedViews.add(child) : selectedViews.remove(child);
+        if (changed) {
+            updateActiveStatus(draggingChild != null && draggingChild.dragging ? draggingChild : null);
+        }
+    }
+
+    public boolean isItemSelected(View child) {
+        return selectedViews.contains(child);
+    }
+
+    public List<View> getSelectedItems() {
+        return new ArrayList<>(selectedViews);
+    }
+
+    public void clearSelection() {
+        if (!selectedViews.isEmpty()) {
+            selectedViews.clear();
+            updateActiveStatus(draggingChild != null && draggingChild.dragging ? draggingChild : null);
+        }
+    }
+
+    @Override
+    public void onViewAdded(View child) {
+        super.onViewAdded(child);
+        arrangementVersion++;
+    }
+
+    @Override
+    public void onViewRemoved(View child) {
+        super.onViewRemoved(child);
+        selectedViews.remove(child);
+        compactionIndex.remove(child);
+        arrangementVersion++;
+    }
+
+    /**
+     * 更新selected和activated状态，只修改状态有变化的Item，避免无效的drawable state刷新
+     */
     private void updateActiveStatus(Target target) {
         for (int i = 0; i < getChildCount(); i++) {
             android.view.View c = getChildAt(i);
-            if (target == null) {
-                c.setSelected(false);
-                c.setActivated(false);
-            } else if (target.view == c) {
-                c.setSelected(true);
-                c.setActivated(true);
-            } else {
-                c.setActivated(true);
-                c.setSelected(false);
+            boolean selected = selectedViews.contains(c) || (target != null && target.view == c);
+            boolean activated = target != null;
+            if (c.isSelected() != selected) {
+                c.setSelected(selected);
+            }
+            if (c.isActivated() != activated) {
+                c.setActivated(activated);
             }
         }
     }
 
     private void animateTarget(final Target draggingTarget) {
-        final boolean changed = draggingTarget.row != draggingTarget.targetRow || draggingTarget.col != draggingTarget.targetCol;
-        ViewPropertyAnimator viewPropertyAnimator = draggingTarget.view.animate();
-        viewPropertyAnimator.scaleX(1f);
-        viewPropertyAnimator.scaleY(1f);
+        cancelPageFlip();
+        swapTablePrepared = false;
+        swapTable.clear();
+        boolean compacted = false;
         LayoutParams layoutParams = getLayoutParams(draggingTarget.view);
         layoutParams.row = draggingTarget.targetRow;
         layoutParams.col = draggingTarget.targetCol;
+        arrangementVersion++;
+        if (compactMode != COMPACT_NONE) {
+            //紧凑排列产生的移动和被拖动的Item在同一帧开始动画
+            for (Target t : computeCompaction(dirtyRow, dirtyCol)) {
+                if (t.view == draggingTarget.view) {
+                    draggingTarget.targetRow = t.targetRow;
+                    draggingTarget.targetCol = t.targetCol;
+                    layoutParams.row = t.targetRow;
+                    layoutParams.col = t.targetCol;
+                    compacted = true;
+                } else {
+                    acceptView.add(t.view);
+                    animateAccept(t);
+                }
+            }
+        }
+        final boolean changed = compacted || draggingTarget.row != draggingTarget.targetRow || draggingTarget.col != draggingTarget.targetCol;
+        ViewPropertyAnimator viewPropertyAnimator = draggingTarget.view.animate();
+        viewPropertyAnimator.scaleX(1f);
+        viewPropertyAnimator.scaleY(1f);
         viewPropertyAnimator.x(getCellLeft(draggingTarget.targetCol));
         viewPropertyAnimator.y(getCellTop(draggingTarget.targetRow));
         viewPropertyAnimator.setListener(new Animator.AnimatorListener() {
@@ -814,6 +2528,7 @@ public class DragGridLayout extends ViewGroup {
                 draggingTarget.view.setTranslationX(0f);
                 draggingTarget.view.setTranslationY(0f);
                 draggingTarget.view.setElevation(0f);
+                releasePreparedDrag();
                 invalidate();
 
                 if (onDragStatusChangedListener != null) {
@@ -824,6 +2539,13 @@ public class DragGridLayout extends ViewGroup {
                 }
 
                 updateActiveStatus(null);
+
+                if (paged) {
+                    //拖动过程中翻页时保留的页在放下后再跳过
+                    updateActivePages(currentPage, currentPage);
+                }
+
+                flushDeferredChanges();
             }
 
             @Override
@@ -842,11 +2564,355 @@ public class DragGridLayout extends ViewGroup {
         viewPropertyAnimator.start();
     }
 
+    /**
+     * 提交新的排列
+     * <p>
+     * 在后台线程按{@link LayoutParams#getItemId()}和当前排列对比，计算出需要移除、加入、移动和改变跨度的Item，
+     * 然后在主线程只修改有变化的Item，并在同一次布局后一起执行动画。没有设置id的Item不受影响。
+     * 拖动过程中提交的排列会在拖动结束后再应用。需要读取当前的Item，只能在主线程调用
+     *
+     * @throws IllegalStateException 排列中有新的Item但没有设置{@link ItemViewFactory}
+     */
+    public void submitArrangement(List<Item> items) {
+        final List<Item> newItems = new ArrayList<>(items);
+        if (itemViewFactory == null) {
+            //在调用处检查，而不是在之后的主线程回调中崩溃
+            Map<Long, View> views = findItemViewsById();
+            for (Item item : newItems) {
+                if (!views.containsKey(item.id)) {
+                    throw new IllegalStateException("ItemViewFactory is required to insert item " + item.id);
+                }
+            }
+        }
+        final int generation = ++submitGeneration;
+        if (draggingChild != null) {
+            pendingArrangement = newItems;
+            return;
+        }
+        pendingArrangement = null;
+
+        final int version = arrangementVersion;
+        int count = 0;
+        List<View> itemViews = getItemViews();
+        long[] ids = new long[itemViews.size()];
+        int[] cells = new int[itemViews.size() * ArrangementDiff.CELL_SIZE];
+        for (View v : itemViews) {
+            LayoutParams lp = getLayoutParams(v);
+            if (!lp.hasItemId) {
+                continue;
+            }
+            int offset = count * ArrangementDiff.CELL_SIZE;
+            ids[count] = lp.itemId;
+            cells[offset] = lp.row;
+            cells[offset + 1] = lp.col;
+            cells[offset + 2] = lp.rowSpan;
+            cells[offset + 3] = lp.colSpan;
+            cells[offset + 4] = lp.page;
+            count++;
+        }
+        final long[] currentIds = Arrays.copyOf(ids, count);
+        final int[] currentCells = Arrays.copyOf(cells, count * ArrangementDiff.CELL_SIZE);
+
+        getDiffExecutor().execute(new Runnable() {
+            @Override
+            public void run() {
+                final ArrangementDiff diff = ArrangementDiff.calculate(currentIds, currentCells, newItems, version);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != submitGeneration) {
+                            //已经有新的排列提交
+                            return;
+                        }
+                        if (draggingChild != null || diff.version != arrangementVersion) {
+                            //计算期间开始了拖动或者排列被修改过，重新计算
+                            submitArrangement(newItems);
+                            return;
+                        }
+                        applyArrangementDiff(diff);
+                    }
+                });
+            }
+        });
+    }
+
+    private void applyArrangementDiff(ArrangementDiff diff) {
+        if (diff.isEmpty()) {
+            return;
+        }
+        Map<Long, View> views = findItemViewsById();
+
+        for (Long id : diff.removed) {
+            View v = views.get(id);
+            if (v != null) {
+                removeView(v);
+            }
+        }
+
+        Map<View, Rect> previousBounds = new HashMap<>();
+        for (Item item : diff.changed) {
+            View v = views.get(item.id);
+            if (v == null) {
+                continue;
+            }
+            previousBounds.put(v, new Rect(v.getLeft(), v.getTop(), v.getRight(), v.getBottom()));
+            LayoutParams lp = getLayoutParams(v);
+            lp.row = item.row;
+            lp.col = item.col;
+            lp.setRowSpan(item.rowSpan);
+            lp.setColSpan(item.colSpan);
+            if (item.hasPage) {
+                lp.page = item.page;
+            }
+        }
+
+        List<View> insertedViews = new ArrayList<>(diff.inserted.size());
+        for (Item item : diff.inserted) {
+            if (itemViewFactory == null) {
+                //提交之后ItemViewFactory被清除
+                break;
+            }
+            View v = itemViewFactory.onCreateItemView(this, item);
+            LayoutParams lp = new LayoutParams(item.row, item.col, item.rowSpan, item.colSpan);
+            lp.setItemId(item.id);
+            lp.page = item.hasPage ? item.page : currentPage;
+            addView(v, lp);
+            insertedViews.add(v);
+        }
+
+        arrangementVersion++;
+        requestLayout();
+        animateLayoutChanges(previousBounds, insertedViews);
+    }
+
+    /**
+     * 当前排列中设置了id的Item
+     */
+    public List<Item> getItems() {
+        List<Item> items = new ArrayList<>();
+        for (View v : getItemViews()) {
+            LayoutParams lp = getLayoutParams(v);
+            if (lp.hasItemId) {
+                items.add(new Item(lp.itemId, lp.row, lp.col, lp.rowSpan, lp.colSpan, lp.page));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * 修改某个Item的位置和跨度，Item指定了页时同时修改所在页，可以在任意线程调用
+     * <p>
+     * 修改先放入无锁队列，每帧在主线程统一应用并只布局一次，同一个Item在一帧内的多次修改只保留最后一次。
+     * 拖动过程中的修改在拖动结束后再应用。按{@link LayoutParams#getItemId()}匹配Item
+     */
+    public void postItemUpdate(Item item) {
+        pendingUpdates.offer(item);
+        if (updateFrameScheduled.compareAndSet(false, true)) {
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                Choreographer.getInstance().postFrameCallback(updateFrameCallback);
+            } else {
+                mainHandler.post(scheduleUpdateFrame);
+            }
+        }
+    }
+
+    private final Runnable scheduleUpdateFrame = new Runnable() {
+        @Override
+        public void run() {
+            Choreographer.getInstance().postFrameCallback(updateFrameCallback);
+        }
+    };
+
+    private final Choreographer.FrameCallback updateFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            //先清除标记，取队列期间提交的修改会在下一帧处理
+            updateFrameScheduled.set(false);
+            Item item;
+            while ((item = pendingUpdates.poll()) != null) {
+                deferredUpdates.remove(item.id);
+                deferredUpdates.put(item.id, item);
+            }
+            if (draggingChild == null) {
+                applyItemUpdates();
+            }
+        }
+    };
+
+    /**
+     * 应用拖动(或按下)期间推迟的修改和排列
+     */
+    private void flushDeferredChanges() {
+        if (!deferredUpdates.isEmpty()) {
+            applyItemUpdates();
+        }
+
+        if (pendingArrangement != null) {
+            submitArrangement(pendingArrangement);
+        }
+    }
+
+    /**
+     * 应用所有未处理的修改，只有位置或跨度变化的Item参与动画
+     */
+    private void applyItemUpdates() {
+        Map<Long, View> views = findItemViewsById();
+        Map<View, Rect> previousBounds = new HashMap<>();
+        for (Item item : deferredUpdates.values()) {
+            View v = views.get(item.id);
+            if (v == null) {
+                continue;
+            }
+            LayoutParams lp = getLayoutParams(v);
+            if (lp.row == item.row && lp.col == item.col && lp.rowSpan == item.rowSpan && lp.colSpan == item.colSpan
+                    && (!item.hasPage || lp.page == item.page)) {
+                continue;
+            }
+            previousBounds.put(v, new Rect(v.getLeft(), v.getTop(), v.getRight(), v.getBottom()));
+            lp.row = item.row;
+            lp.col = item.col;
+            lp.setRowSpan(item.rowSpan);
+            lp.setColSpan(item.colSpan);
+            if (item.hasPage) {
+                lp.page = item.page;
+            }
+        }
+        deferredUpdates.clear();
+        if (previousBounds.isEmpty()) {
+            return;
+        }
+        arrangementVersion++;
+        requestLayout();
+        animateLayoutChanges(previousBounds, Collections.<View>emptyList());
+    }
+
+    /**
+     * 所有设置了id的Item
+     */
+    private Map<Long, View> findItemViewsById() {
+        Map<Long, View> views = new HashMap<>();
+        for (View c : getItemViews()) {
+            LayoutParams lp = getLayoutParams(c);
+            if (lp.hasItemId) {
+                views.put(lp.itemId, c);
+            }
+        }
+        return views;
+    }
+
+    /**
+     * 在下一次布局完成后，让位置变化的Item从原来的位置移动到新位置，新加入的Item淡入，所有动画同时开始
+     *
+     * @param previousBounds 布局前Item的位置
+     * @param insertedViews  新加入的Item
+     */
+    private void animateLayoutChanges(final Map<View, Rect> previousBounds, final List<View> insertedViews) {
+        for (View v : insertedViews) {
+            v.setAlpha(0f);
+        }
+        getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                getViewTreeObserver().removeOnPreDrawListener(this);
+                for (Map.Entry<View, Rect> entry : previousBounds.entrySet()) {
+                    View v = entry.getKey();
+                    Rect from = entry.getValue();
+                    if (v.getParent() != DragGridLayout.this || (from.left == v.getLeft() && from.top == v.getTop()
+                            && from.width() == v.getWidth() && from.height() == v.getHeight())) {
+                        continue;
+                    }
+                    //大小变化时以中心缩放，平移中心点，不修改pivot
+                    v.setTranslationX(from.exactCenterX() - (v.getLeft() + v.getRight()) / 2f);
+                    v.setTranslationY(from.exactCenterY() - (v.getTop() + v.getBottom()) / 2f);
+                    if (v.getWidth() > 0 && v.getHeight() > 0) {
+                        v.setScaleX(from.width() / (float) v.getWidth());
+                        v.setScaleY(from.height() / (float) v.getHeight());
+                    }
+                    ViewPropertyAnimator animator = v.animate().translationX(0f).translationY(0f).scaleX(1f).scaleY(1f);
+                    if (animationDuration > -1) {
+                        animator.setDuration(animationDuration);
+                    }
+                    animator.start();
+                }
+                for (View v : insertedViews) {
+                    ViewPropertyAnimator animator = v.animate().alpha(1f);
+                    if (animationDuration > -1) {
+                        animator.setDuration(animationDuration);
+                    }
+                    animator.start();
+                }
+                return true;
+            }
+        });
+    }
+
+    /**
+     * 对所有Item进行紧凑排列，所有移动在同一次动画中完成
+     */
+    public void compact() {
+        if (draggingChild != null) {
+            return;
+        }
+        for (Target t : computeCompaction(0, 0)) {
+            acceptView.add(t.view);
+            animateAccept(t);
+        }
+    }
+
+    /**
+     * 以skyline的方式计算当前页紧凑排列后的位置，变化位置之前的Item保持不动，只重新计算之后的Item
+     *
+     * @param fromRow 纵向紧凑时发生变化的最小行
+     * @param fromCol 横向紧凑时发生变化的最小列
+     * @return 位置需要改变的Item
+     */
+    private List<Target> computeCompaction(int fromRow, int fromCol) {
+        List<Target> result = new ArrayList<>();
+        if (compactMode == COMPACT_NONE) {
+            return result;
+        }
+        final boolean vertical = compactMode == COMPACT_VERTICAL;
+        compactionIndex.setVertical(vertical);
+        //只有位置变化过的Item会在有序列表中移动
+        for (int i = 0; i < getChildCount(); i++) {
+            View c = getChildAt(i);
+            LayoutParams lp = getLayoutParams(c);
+            if (c.getVisibility() == View.GONE || lp.overflow) {
+                compactionIndex.remove(c);
+            } else {
+                compactionIndex.put(c, paged ? lp.page : 0, lp.row, lp.col, lp.rowSpan, lp.colSpan);
+            }
+        }
+        List<CompactionIndex.Entry<View>> moved = compactionIndex.compact(paged ? currentPage : 0,
+                vertical ? fromRow : fromCol, vertical ? colCount : rowCount, compactionFilter);
+        for (CompactionIndex.Entry<View> e : moved) {
+            if (vertical) {
+                result.add(new Target(e.item, e.row, e.col, e.rowSpan, e.colSpan, e.target, e.col));
+            } else {
+                result.add(new Target(e.item, e.row, e.col, e.rowSpan, e.colSpan, e.row, e.target));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 锁定的格子和允许区域之外不参与紧凑排列
+     */
+    private final CompactionIndex.MoveFilter<View> compactionFilter = new CompactionIndex.MoveFilter<View>() {
+        @Override
+        public boolean canMove(CompactionIndex.Entry<View> e, int target) {
+            return compactMode == COMPACT_VERTICAL
+                    ? canMoveTo(e.item, e.row, e.col, target, e.col, e.rowSpan, e.colSpan)
+                    : canMoveTo(e.item, e.row, e.col, e.row, target, e.rowSpan, e.colSpan);
+        }
+    };
+
     private void animateAccept(final Target acceptTarget) {
         acceptTarget.view.setElevation(9f);
         LayoutParams layoutParams = getLayoutParams(acceptTarget.view);
         layoutParams.row = acceptTarget.targetRow;
         layoutParams.col = acceptTarget.targetCol;
+        arrangementVersion++;
         ViewPropertyAnimator viewPropertyAnimator = acceptTarget.view.animate();
         viewPropertyAnimator.x(getCellLeft(acceptTarget.targetCol));
         viewPropertyAnimator.y(getCellTop(acceptTarget.targetRow));
@@ -0,0 +1,460 @@
+package com.edhlily.draggrid;
+
+import android.graphics.Rect;
+import android.util.SparseBooleanArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.recyclerview.widget.RecyclerView;
+
+import java.util.Arrays;
+
+/**
+ * 和DragGridLayout使用相同行列模型的LayoutManager，纵向滚动，行数不限
+ * <p>
+ * 每个Item的row/col/rowSpan/colSpan通过{@link CellLookup}以{@link DragGridLayout.LayoutParams}的形式提供，
+ * 拖动交换规则和DragGridLayout相同，配合{@link DragGridItemTouchCallback}使用。
+ * 只布局可见的Item，并向GapWorker提供滚动方向上即将可见的Item用于预取
+ */
+public class DragGridLayoutManager extends RecyclerView.LayoutManager {
+
+    public interface CellLookup {
+        /**
+         * 把position对应Item的row/col/rowSpan/colSpan写入outParams
+         */
+        void getCell(int position, DragGridLayout.LayoutParams outParams);
+    }
+
+    /**
+     * 列
+     */
+    private int colCount;
+
+    /**
+     * 行高，小于等于0时和列宽一样
+     */
+    private int rowHeight = 0;
+
+    /**
+     * 行间隔
+     */
+    private int rowSpacing = 0;
+
+    /**
+     * 列间隔
+     */
+    private int colSpacing = 0;
+
+    private CellLookup cellLookup;
+
+    private final GridTracks colTracks = new GridTracks();
+
+    /**
+     * 每个Item的 row, col, rowSpan, colSpan，每4个一组
+     */
+    private int[] cells = new int[0];
+
+    /**
+     * 按行排序的 (row << 32 | position)，用于二分查找可见的Item
+     */
+    private long[] rowIndex = new long[0];
+
+    private int maxRowSpan = 1;
+    private int totalRows = 0;
+    private boolean cellsDirty = true;
+
+    /**
+     * 纵向滚动距离
+     */
+    private int scrollOffset = 0;
+
+    private final DragGridLayout.LayoutParams lookupParams = new DragGridLayout.LayoutParams();
+    private final Rect decorInsets = new Rect();
+    private final SparseBooleanArray attached = new SparseBooleanArray();
+
+    public DragGridLayoutManager(int colCount, CellLookup cellLookup) {
+        this.cellLookup = cellLookup;
+        setColCount(colCount);
+    }
+
+    public int getColCount() {
+        return colCount;
+    }
+
+    public void setColCount(int colCount) {
+        this.colCount = Math.max(1, colCount);
+        colTracks.setCount(this.colCount);
+        invalidateCells();
+    }
+
+    public int getRowHeight() {
+        return rowHeight;
+    }
+
+    public void setRowHeight(int rowHeight) {
+        this.rowHeight = rowHeight;
+        requestLayout();
+    }
+
+    public int getRowSpacing() {
+        return rowSpacing;
+    }
+
+    public void setRowSpacing(int rowSpacing) {
+        this.rowSpacing = rowSpacing;
+        requestLayout();
+    }
+
+    public int getColSpacing() {
+        return colSpacing;
+    }
+
+    public void setColSpacing(int colSpacing) {
+        this.colSpacing = colSpacing;
+        colTracks.setSpacing(colSpacing);
+        requestLayout();
+    }
+
+    public CellLookup getCellLookup() {
+        return cellLookup;
+    }
+
+    public void setCellLookup(CellLookup cellLookup) {
+        this.cellLookup = cellLookup;
+        invalidateCells();
+    }
+
+    /**
+     * Item的位置发生变化后调用，下次布局时重新读取
+     */
+    public void invalidateCells() {
+        cellsDirty = true;
+        requestLayout();
+    }
+
+    /**
+     * @param out {row, col, rowSpan, colSpan}
+     * @return position无效时返回false
+     */
+    boolean getCell(int position, int[] out) {
+        if (position < 0 || position * 4 + 3 >= cells.length) {
+            return false;
+        }
+        System.arraycopy(cells, position * 4, out, 0, 4);
+        return true;
+    }
+
+    /**
+     * 拖动交换后直接修改缓存的位置，不必等到下次布局重新读取，行索引中只移动这一个Item
+     */
+    void setCellPosition(int position, int row, int col) {
+        if (position < 0 || position * 4 + 3 >= cells.length) {
+            return;
+        }
+        int oldRow = cells[position * 4];
+        int rowSpan = cells[position * 4 + 2];
+        cells[position * 4] = row;
+        cells[position * 4 + 1] = col;
+        if (oldRow != row) {
+            moveRowIndex(((long) oldRow << 32) | position, ((long) row << 32) | position);
+        }
+        if (row + rowSpan >= totalRows) {
+            totalRows = row + rowSpan;
+        } else if (oldRow + rowSpan == totalRows) {
+            //最后一行的Item上移，重新计算总行数
+            totalRows = 0;
+            for (int i = 0; i * 4 < cells.length; i++) {
+                totalRows = Math.max(totalRows, cells[i * 4] + cells[i * 4 + 2]);
+            }
+        }
+        requestLayout();
+    }
+
+    /**
+     * 把有序的rowIndex中的oldKey换成newKey，只移动两者之间的元素
+     */
+    private void moveRowIndex(long oldKey, long newKey) {
+        int from = Arrays.binarySearch(rowIndex, oldKey);
+        if (from < 0) {
+            return;
+        }
+        //每个position只出现一次，newKey不在数组中
+        int to = -(Arrays.binarySearch(rowIndex, newKey) + 1);
+        if (to > from) {
+            to--;
+            System.arraycopy(rowIndex, from + 1, rowIndex, from, to - from);
+        } else {
+            System.arraycopy(rowIndex, to, rowIndex, to + 1, from - to);
+        }
+        rowIndex[to] = newKey;
+    }
+
+    @Override
+    public RecyclerView.LayoutParams generateDefaultLayoutParams() {
+        return new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT);
+    }
+
+    @Override
+    public boolean canScrollVertically() {
+        return true;
+    }
+
+    @Override
+    public void onItemsChanged(RecyclerView recyclerView) {
+        cellsDirty = true;
+    }
+
+    @Override
+    public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount) {
+        cellsDirty = true;
+    }
+
+    @Override
+    public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount) {
+        cellsDirty = true;
+    }
+
+    @Override
+    public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount) {
+        cellsDirty = true;
+    }
+
+    @Override
+    public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount, Object payload) {
+        if (payload == DragGridItemTouchCallback.PAYLOAD_CELL_CHANGED) {
+            //位置已经通过setCellPosition更新，不需要重新读取所有Item
+            return;
+        }
+        super.onItemsUpdated(recyclerView, positionStart, itemCount, payload);
+    }
+
+    @Override
+    public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount) {
+        cellsDirty = true;
+    }
+
+    @Override
+    public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state) {
+        if (state.getItemCount() == 0) {
+            removeAndRecycleAllViews(recycler);
+            cells = new int[0];
+            rowIndex = new long[0];
+            totalRows = 0;
+            scrollOffset = 0;
+            return;
+        }
+        updateCells(state.getItemCount());
+        colTracks.measure(getWidth() - getPaddingLeft() - getPaddingRight());
+        scrollOffset = Math.max(0, Math.min(scrollOffset, getMaxScrollOffset()));
+        detachAndScrapAttachedViews(recycler);
+        fill(recycler);
+    }
+
+    @Override
+    public int scrollVerticallyBy(int dy, RecyclerView.Recycler recycler, RecyclerView.State state) {
+        if (getChildCount() == 0 || dy == 0) {
+            return 0;
+        }
+        int offset = Math.max(0, Math.min(scrollOffset + dy, getMaxScrollOffset()));
+        int consumed = offset - scrollOffset;
+        scrollOffset = offset;
+        offsetChildrenVertical(-consumed);
+        fill(recycler);
+        return consumed;
+    }
+
+    @Override
+    public void scrollToPosition(int position) {
+        if (position < 0 || position * 4 >= cells.length) {
+            return;
+        }
+        scrollOffset = getRowTop(cells[position * 4]);
+        requestLayout();
+    }
+
+    @Override
+    public void collectAdjacentPrefetchPositions(int dx, int dy, RecyclerView.State state,
+                                                 LayoutPrefetchRegistry layoutPrefetchRegistry) {
+        if (getChildCount() == 0 || dy == 0 || cells.length == 0) {
+            return;
+        }
+        int viewportTop = scrollOffset;
+        int viewportBottom = scrollOffset + getVisibleHeight();
+        //滚动方向上即将进入屏幕的行
+        int fromRow;
+        int toRow;
+        if (dy > 0) {
+            fromRow = getRowAt(viewportBottom) + 1;
+            toRow = Math.max(fromRow, getRowAt(viewportBottom + dy));
+        } else {
+            toRow = getRowAt(viewportTop) - 1;
+            fromRow = Math.min(toRow, getRowAt(viewportTop + dy));
+        }
+        if (fromRow > toRow) {
+            return;
+        }
+        int start = lowerBound(fromRow - maxRowSpan + 1);
+        for (int k = start; k < rowIndex.length; k++) {
+            int row = (int) (rowIndex[k] >> 32);
+            if (row > toRow) {
+                break;
+            }
+            int position = (int) rowIndex[k];
+            int rowEnd = row + cells[position * 4 + 2];
+            if (rowEnd <= fromRow) {
+                continue;
+            }
+            int top = getRowTop(row);
+            int distance = dy > 0 ? top - viewportBottom : viewportTop - (top + getSpanHeight(cells[position * 4 + 2]));
+            layoutPrefetchRegistry.addPosition(position, Math.max(0, distance));
+        }
+    }
+
+    @Override
+    public int computeVerticalScrollOffset(RecyclerView.State state) {
+        return scrollOffset;
+    }
+
+    @Override
+    public int computeVerticalScrollExtent(RecyclerView.State state) {
+        return getVisibleHeight();
+    }
+
+    @Override
+    public int computeVerticalScrollRange(RecyclerView.State state) {
+        return getContentHeight();
+    }
+
+    private void updateCells(int itemCount) {
+        if (!cellsDirty && cells.length == itemCount * 4) {
+            return;
+        }
+        cells = new int[itemCount * 4];
+        rowIndex = new long[itemCount];
+        maxRowSpan = 1;
+        totalRows = 0;
+        for (int i = 0; i < itemCount; i++) {
+            lookupParams.setRow(0);
+            lookupParams.setCol(0);
+            lookupParams.setRowSpan(1);
+            lookupParams.setColSpan(1);
+            cellLookup.getCell(i, lookupParams);
+            int rowSpan = Math.max(1, lookupParams.getRowSpan());
+            int colSpan = Math.max(1, Math.min(lookupParams.getColSpan(), colCount));
+            int row = Math.max(0, lookupParams.getRow());
+            int col = Math.max(0, Math.min(lookupParams.getCol(), colCount - colSpan));
+            cells[i * 4] = row;
+            cells[i * 4 + 1] = col;
+            cells[i * 4 + 2] = rowSpan;
+            cells[i * 4 + 3] = colSpan;
+            rowIndex[i] = ((long) row << 32) | i;
+            maxRowSpan = Math.max(maxRowSpan, rowSpan);
+            totalRows = Math.max(totalRows, row + rowSpan);
+        }
+        Arrays.sort(rowIndex);
+        cellsDirty = false;
+    }
+
+    /**
+     * 回收不可见的Item，加入新的可见Item
+     */
+    private void fill(RecyclerView.Recycler recycler) {
+        int top = getPaddingTop();
+        int bottom = getHeight() - getPaddingBottom();
+        attached.clear();
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            View child = getChildAt(i);
+            if (getDecoratedBottom(child) <= top || getDecoratedTop(child) >= bottom) {
+                removeAndRecycleView(child, recycler);
+            } else {
+                attached.put(getPosition(child), true);
+            }
+        }
+
+        int firstRow = getRowAt(scrollOffset);
+        int lastRow = getRowAt(scrollOffset + getVisibleHeight());
+        int start = lowerBound(firstRow - maxRowSpan + 1);
+        for (int k = start; k < rowIndex.length; k++) {
+            int row = (int) (rowIndex[k] >> 32);
+            if (row > lastRow) {
+                break;
+            }
+            int position = (int) rowIndex[k];
+            if (row + cells[position * 4 + 2] <= firstRow || attached.get(position)) {
+                continue;
+            }
+            layoutItem(recycler, position);
+        }
+    }
+
+    private void layoutItem(RecyclerView.Recycler recycler, int position) {
+        int row = cells[position * 4];
+        int col = cells[position * 4 + 1];
+        int rowSpan = cells[position * 4 + 2];
+        int colSpan = cells[position * 4 + 3];
+
+        int left = getPaddingLeft() + colTracks.start(col);
+        int right = getPaddingLeft() + colTracks.end(col + colSpan - 1);
+        int top = getPaddingTop() + getRowTop(row) - scrollOffset;
+        int bottom = top + getSpanHeight(rowSpan);
+
+        View view = recycler.getViewForPosition(position);
+        addView(view);
+        calculateItemDecorationsForChild(view, decorInsets);
+        RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) view.getLayoutParams();
+        int width = right - left - decorInsets.left - decorInsets.right - lp.leftMargin - lp.rightMargin;
+        int height = bottom - top - decorInsets.top - decorInsets.bottom - lp.topMargin - lp.bottomMargin;
+        view.measure(
+                View.MeasureSpec.makeMeasureSpec(Math.max(0, width), View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(Math.max(0, height), View.MeasureSpec.EXACTLY)
+        );
+        layoutDecoratedWithMargins(view, left, top, right, bottom);
+    }
+
+    /**
+     * 第一个row不小于minRow的下标
+     */
+    private int lowerBound(int minRow) {
+        int low = 0;
+        int high = rowIndex.length;
+        long key = (long) minRow << 32;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (rowIndex[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int getRowHeightPx() {
+        return rowHeight > 0 ? rowHeight : colTracks.size(0);
+    }
+
+    private int getRowTop(int row) {
+        return row * (getRowHeightPx() + rowSpacing);
+    }
+
+    private int getSpanHeight(int rowSpan) {
+        return rowSpan * getRowHeightPx() + (rowSpan - 1) * rowSpacing;
+    }
+
+    private int getRowAt(int y) {
+        int pitch = getRowHeightPx() + rowSpacing;
+        return pitch <= 0 ? 0 : Math.max(0, y / pitch);
+    }
+
+    private int getVisibleHeight() {
+        return getHeight() - getPaddingTop() - getPaddingBottom();
+    }
+
+    private int getContentHeight() {
+        return totalRows == 0 ? 0 : getSpanHeight(totalRows);
+    }
+
+    private int getMaxScrollOffset() {
+        return Math.max(0, getContentHeight() - getVisibleHeight());
+    }
+}
@@ -0,0 +1,39 @@
+package com.edhlily.draggrid;
+
+import android.view.View;
+
+import java.util.WeakHashMap;
+
+/**
+ * 某个列数下所有Item的位置快照，切换回该列数时直接恢复
+ */
+class GridArrangement {
+    final int rowCount;
+    final int colCount;
+
+    /**
+     * 快照仍然有效时的排列版本，之后Item被拖动、加入或移除时快照失效
+     */
+    int version;
+
+    /**
+     * View -> {row, col, rowSpan, colSpan}
+     */
+    private final WeakHashMap<View, int[]> cells = new WeakHashMap<>();
+
+    GridArrangement(int rowCount, int colCount) {
+        this.rowCount = rowCount;
+        this.colCount = colCount;
+    }
+
+    void put(View view, int row, int col, int rowSpan, int colSpan) {
+        cells.put(view, new int[]{row, col, rowSpan, colSpan});
+    }
+
+    /**
+     * @return {row, col, rowSpan, colSpan}，没有记录时返回null
+     */
+    int[] get(View view) {
+        return cells.get(view);
+    }
+}
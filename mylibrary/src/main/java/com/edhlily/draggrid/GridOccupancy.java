@@ -0,0 +1,249 @@
+package com.edhlily.draggrid;
+
+import java.util.Arrays;
+
+/**
+ * 网格占用表
+ * <p>
+ * 按行优先把每个格子映射到long[]中的一位，区域的检查和设置都按字(64位)进行
+ */
+class GridOccupancy {
+    private int rowCount;
+    private int colCount;
+    private long[] bits;
+
+    GridOccupancy(int rowCount, int colCount) {
+        this.rowCount = Math.max(0, rowCount);
+        this.colCount = Math.max(1, colCount);
+        this.bits = new long[wordCount(this.rowCount * this.colCount)];
+    }
+
+    int getRowCount() {
+        return rowCount;
+    }
+
+    int getColCount() {
+        return colCount;
+    }
+
+    /**
+     * 修改行数，已有行的占用状态保持不变
+     */
+    void setRowCount(int rowCount) {
+        rowCount = Math.max(0, rowCount);
+        if (rowCount < this.rowCount) {
+            clearRange(bits, rowCount * colCount, this.rowCount * colCount);
+        }
+        this.rowCount = rowCount;
+        int words = wordCount(rowCount * colCount);
+        if (words != bits.length) {
+            bits = Arrays.copyOf(bits, words);
+        }
+    }
+
+    void clear() {
+        Arrays.fill(bits, 0L);
+    }
+
+    /**
+     * 是否没有任何格子被占用
+     */
+    boolean isEmpty() {
+        for (long word : bits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按字合并other中被占用的格子，两者的行列数必须相同
+     */
+    void addAll(GridOccupancy other) {
+        if (other.rowCount != rowCount || other.colCount != colCount) {
+            throw new IllegalArgumentException("Occupancy size mismatch");
+        }
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] |= other.bits[i];
+        }
+    }
+
+    GridOccupancy copy() {
+        GridOccupancy result = new GridOccupancy(rowCount, colCount);
+        System.arraycopy(bits, 0, result.bits, 0, bits.length);
+        return result;
+    }
+
+    /**
+     * 复制为新的行列数，重叠部分保持不变
+     *
+     * @param fill 新增的格子是否为占用状态
+     */
+    GridOccupancy resize(int rowCount, int colCount, boolean fill) {
+        GridOccupancy result = new GridOccupancy(rowCount, colCount);
+        if (fill) {
+            setRange(result.bits, 0, result.rowCount * result.colCount);
+        }
+        int rows = Math.min(this.rowCount, result.rowCount);
+        int cols = Math.min(this.colCount, result.colCount);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (isOccupied(r, c)) {
+                    result.occupy(r, c, 1, 1);
+                } else {
+                    result.release(r, c, 1, 1);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 区域是否全部在网格内
+     */
+    boolean contains(int row, int col, int rowSpan, int colSpan) {
+        return row >= 0 && col >= 0 && rowSpan > 0 && colSpan > 0
+                && row + rowSpan <= rowCount && col + colSpan <= colCount;
+    }
+
+    /**
+     * 区域是否在网格内且没有被占用
+     */
+    boolean isFree(int row, int col, int rowSpan, int colSpan) {
+        if (!contains(row, col, rowSpan, colSpan)) {
+            return false;
+        }
+        for (int r = row; r < row + rowSpan; r++) {
+            int from = r * colCount + col;
+            if (anyInRange(bits, from, from + colSpan)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean isOccupied(int row, int col) {
+        int index = row * colCount + col;
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    void occupy(int row, int col, int rowSpan, int colSpan) {
+        update(row, col, rowSpan, colSpan, true);
+    }
+
+    void release(int row, int col, int rowSpan, int colSpan) {
+        update(row, col, rowSpan, colSpan, false);
+    }
+
+    private void update(int row, int col, int rowSpan, int colSpan, boolean occupied) {
+        int rowEnd = Math.min(row + rowSpan, rowCount);
+        int colEnd = Math.min(col + colSpan, colCount);
+        row = Math.max(0, row);
+        col = Math.max(0, col);
+        if (col >= colEnd) {
+            return;
+        }
+        for (int r = row; r < rowEnd; r++) {
+            int from = r * colCount + col;
+            int to = r * colCount + colEnd;
+            if (occupied) {
+                setRange(bits, from, to);
+            } else {
+                clearRange(bits, from, to);
+            }
+        }
+    }
+
+    /**
+     * 按行优先查找第一个可以放下的位置
+     *
+     * @return row * colCount + col，没有位置时返回-1
+     */
+    int findFirstFree(int rowSpan, int colSpan) {
+        return findFirstFree(rowSpan, colSpan, null);
+    }
+
+    /**
+     * 同{@link #findFirstFree(int, int)}，并且位置在excluded中也是空的
+     *
+     * @param excluded 不能放置的格子，超出excluded的部分也不能放置，null表示不限制
+     */
+    int findFirstFree(int rowSpan, int colSpan, GridOccupancy excluded) {
+        for (int r = 0; r + rowSpan <= rowCount; r++) {
+            for (int c = 0; c + colSpan <= colCount; c++) {
+                if (isFree(r, c, rowSpan, colSpan) && (excluded == null || excluded.isFree(r, c, rowSpan, colSpan))) {
+                    return r * colCount + c;
+                }
+            }
+        }
+        return -1;
+    }
+
+    static int wordCount(int bitCount) {
+        return (bitCount + 63) >>> 6;
+    }
+
+    /**
+     * [from, to) 中是否有位被设置
+     */
+    static boolean anyInRange(long[] bits, int from, int to) {
+        if (from >= to) {
+            return false;
+        }
+        int startWord = from >>> 6;
+        int endWord = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (startWord == endWord) {
+            return (bits[startWord] & firstMask & lastMask) != 0;
+        }
+        if ((bits[startWord] & firstMask) != 0) {
+            return true;
+        }
+        for (int i = startWord + 1; i < endWord; i++) {
+            if (bits[i] != 0) {
+                return true;
+            }
+        }
+        return (bits[endWord] & lastMask) != 0;
+    }
+
+    static void setRange(long[] bits, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int startWord = from >>> 6;
+        int endWord = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (startWord == endWord) {
+            bits[startWord] |= firstMask & lastMask;
+            return;
+        }
+        bits[startWord] |= firstMask;
+        for (int i = startWord + 1; i < endWord; i++) {
+            bits[i] = -1L;
+        }
+        bits[endWord] |= lastMask;
+    }
+
+    static void clearRange(long[] bits, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int startWord = from >>> 6;
+        int endWord = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (startWord == endWord) {
+            bits[startWord] &= ~(firstMask & lastMask);
+            return;
+        }
+        bits[startWord] &= ~firstMask;
+        for (int i = startWord + 1; i < endWord; i++) {
+            bits[i] = 0L;
+        }
+        bits[endWord] &= ~lastMask;
+    }
+}
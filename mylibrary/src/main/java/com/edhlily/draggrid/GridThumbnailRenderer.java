@@ -0,0 +1,373 @@
+package com.edhlily.draggrid;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.View;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 按row/col/span绘制网格缩略图
+ * <p>
+ * 每个Item的内容缓存为一张小图，只有调用{@link #invalidateTile(long)}时才重新截取；
+ * 缩略图只是把缓存的小图按位置缩放绘制，可以在后台线程绘制，输出的Bitmap可以通过{@link #recycle(Bitmap)}复用
+ * <pre>
+ * renderer.captureTiles(gridLayout, 0.25f);
+ * renderer.renderAsync(gridLayout, gridLayout.getCurrentPage(), width, height, callback);
+ * </pre>
+ */
+public class GridThumbnailRenderer {
+
+    /**
+     * 复用池中最多保留的缩略图
+     */
+    private static final int MAX_POOL_SIZE = 8;
+
+    public interface TileRenderer {
+        /**
+         * 在后台线程绘制没有缓存的Item
+         *
+         * @param canvas 原点已经移动到Item的左上角
+         * @param width  Item在缩略图中的宽度
+         * @param height Item在缩略图中的高度
+         */
+        void renderTile(Canvas canvas, DragGridLayout.Item item, int width, int height);
+    }
+
+    public interface Callback {
+        /**
+         * 在主线程回调，不再使用时可以通过{@link #recycle(Bitmap)}放回复用池
+         */
+        void onThumbnailRendered(Bitmap thumbnail);
+    }
+
+    private final TileRenderer tileRenderer;
+
+    /**
+     * 每个Item的内容，key为itemId
+     */
+    private final Map<Long, Bitmap> tileCache = new ConcurrentHashMap<>();
+
+    private final ArrayDeque<Bitmap> pool = new ArrayDeque<>();
+
+    /**
+     * 正在绘制的缩略图数量，不为0时被移除的缓存先放入staleTiles，全部绘制完成后再回收
+     */
+    private int activeRenders = 0;
+
+    private final List<Bitmap> staleTiles = new ArrayList<>();
+
+    private Executor executor;
+
+    /**
+     * 所有GridThumbnailRenderer共用的后台线程
+     */
+    private static Executor defaultExecutor;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    /**
+     * 缩略图中格子的间隔
+     */
+    private int spacing = 0;
+
+    /**
+     * 没有缓存也没有TileRenderer时Item的颜色
+     */
+    private int placeholderColor = 0x33000000;
+
+    public GridThumbnailRenderer() {
+        this(null);
+    }
+
+    /**
+     * @param tileRenderer 绘制没有缓存的Item，为null时绘制占位色块
+     */
+    public GridThumbnailRenderer(TileRenderer tileRenderer) {
+        this.tileRenderer = tileRenderer;
+    }
+
+    public int getSpacing() {
+        return spacing;
+    }
+
+    public void setSpacing(int spacing) {
+        this.spacing = spacing;
+    }
+
+    public int getPlaceholderColor() {
+        return placeholderColor;
+    }
+
+    public void setPlaceholderColor(int placeholderColor) {
+        this.placeholderColor = placeholderColor;
+    }
+
+    /**
+     * 设置后台绘制使用的线程，默认所有GridThumbnailRenderer共用一个后台线程
+     */
+    public void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    private Executor getExecutor() {
+        if (executor != null) {
+            return executor;
+        }
+        synchronized (GridThumbnailRenderer.class) {
+            if (defaultExecutor == null) {
+                defaultExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "GridThumbnailRenderer");
+                        //不阻止进程退出
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+            return defaultExecutor;
+        }
+    }
+
+    /**
+     * 在主线程截取grid中设置了id的Item，已经缓存的Item不会重新截取
+     *
+     * @param scale 缓存相对Item原始大小的比例
+     */
+    public void captureTiles(DragGridLayout grid, float scale) {
+        for (View v : grid.getItemViews()) {
+            DragGridLayout.LayoutParams lp = (DragGridLayout.LayoutParams) v.getLayoutParams();
+            long id = lp.getItemId();
+            if (!lp.hasItemId() || v.getWidth() == 0 || v.getHeight() == 0 || tileCache.containsKey(id)) {
+                continue;
+            }
+            int width = Math.max(1, Math.round(v.getWidth() * scale));
+            int height = Math.max(1, Math.round(v.getHeight() * scale));
+            Bitmap tile = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            Canvas canvas = new Canvas(tile);
+            canvas.scale(width / (float) v.getWidth(), height / (float) v.getHeight());
+            v.draw(canvas);
+            tileCache.put(id, tile);
+        }
+    }
+
+    /**
+     * Item的内容发生了变化，下次captureTiles时重新截取
+     */
+    public void invalidateTile(long itemId) {
+        discardTile(tileCache.remove(itemId));
+    }
+
+    public void invalidateAll() {
+        for (Iterator<Bitmap> it = tileCache.values().iterator(); it.hasNext(); ) {
+            Bitmap tile = it.next();
+            it.remove();
+            discardTile(tile);
+        }
+    }
+
+    /**
+     * 回收已经从缓存中移除的小图，正在绘制的缩略图可能还在使用，等绘制完成后再回收
+     */
+    private void discardTile(Bitmap tile) {
+        if (tile == null) {
+            return;
+        }
+        synchronized (staleTiles) {
+            if (activeRenders > 0) {
+                staleTiles.add(tile);
+                return;
+            }
+        }
+        tile.recycle();
+    }
+
+    private void beginRender() {
+        synchronized (staleTiles) {
+            activeRenders++;
+        }
+    }
+
+    private void endRender() {
+        synchronized (staleTiles) {
+            if (--activeRenders > 0) {
+                return;
+            }
+            for (Bitmap tile : staleTiles) {
+                tile.recycle();
+            }
+            staleTiles.clear();
+        }
+    }
+
+    /**
+     * 在主线程记录grid中第page页的Item和行列的权重、固定尺寸，在后台线程绘制缩略图，完成后在主线程回调
+     * <p>
+     * 固定尺寸的行列按缩略图和grid的大小比例缩放，非分页模式下page无效
+     */
+    public void renderAsync(DragGridLayout grid, int page, final int width, final int height, final Callback callback) {
+        final List<DragGridLayout.Item> snapshot = new ArrayList<>();
+        for (DragGridLayout.Item item : grid.getItems()) {
+            if (!grid.isPaged() || item.getPage() == page) {
+                snapshot.add(item);
+            }
+        }
+        final int spacing = this.spacing;
+        final int placeholderColor = this.placeholderColor;
+        final GridTracks rows = grid.getRowTracks().copy();
+        final GridTracks cols = grid.getColTracks().copy();
+        int gridWidth = grid.getWidth() - grid.getPaddingLeft() - grid.getPaddingRight();
+        int gridHeight = grid.getHeight() - grid.getPaddingTop() - grid.getPaddingBottom();
+        if (gridWidth > 0 && gridHeight > 0) {
+            cols.scaleFixedSizes(width / (float) gridWidth);
+            rows.scaleFixedSizes(height / (float) gridHeight);
+        }
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                deliver(render(snapshot, rows, cols, width, height, spacing, placeholderColor), callback);
+            }
+        });
+    }
+
+    /**
+     * 在后台线程按均分的行列绘制缩略图，完成后在主线程回调
+     */
+    public void renderAsync(List<DragGridLayout.Item> items, final int rowCount, final int colCount,
+                            final int width, final int height, final Callback callback) {
+        final List<DragGridLayout.Item> snapshot = new ArrayList<>(items);
+        final int spacing = this.spacing;
+        final int placeholderColor = this.placeholderColor;
+        execute(new Runnable() {
+            @Override
+            public void run() {
+                deliver(render(snapshot, uniformTracks(rowCount), uniformTracks(colCount), width, height,
+                        spacing, placeholderColor), callback);
+            }
+        });
+    }
+
+    private void execute(Runnable task) {
+        getExecutor().execute(task);
+    }
+
+    private void deliver(final Bitmap thumbnail, final Callback callback) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                callback.onThumbnailRendered(thumbnail);
+            }
+        });
+    }
+
+    /**
+     * 按均分的行列绘制缩略图，可以在任意线程调用
+     *
+     * @param items 要绘制的Item，不区分页，超出rowCount x colCount的部分被裁掉
+     */
+    public Bitmap render(List<DragGridLayout.Item> items, int rowCount, int colCount, int width, int height) {
+        return render(items, uniformTracks(rowCount), uniformTracks(colCount), width, height, spacing, placeholderColor);
+    }
+
+    private static GridTracks uniformTracks(int count) {
+        GridTracks tracks = new GridTracks();
+        tracks.setCount(count);
+        return tracks;
+    }
+
+    /**
+     * 按rows和cols的配置绘制，会修改rows和cols的间隔。spacing和placeholderColor在调用线程读取后传入
+     */
+    private Bitmap render(List<DragGridLayout.Item> items, GridTracks rows, GridTracks cols, int width, int height,
+                          int spacing, int placeholderColor) {
+        beginRender();
+        try {
+            return draw(items, rows, cols, width, height, spacing, placeholderColor);
+        } finally {
+            endRender();
+        }
+    }
+
+    private Bitmap draw(List<DragGridLayout.Item> items, GridTracks rows, GridTracks cols, int width, int height,
+                        int spacing, int placeholderColor) {
+        Bitmap thumbnail = obtain(width, height);
+        Canvas canvas = new Canvas(thumbnail);
+
+        int rowCount = rows.getCount();
+        int colCount = cols.getCount();
+        rows.setSpacing(spacing);
+        rows.measure(height);
+        cols.setSpacing(spacing);
+        cols.measure(width);
+
+        Paint bitmapPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        Paint placeholderPaint = new Paint();
+        placeholderPaint.setColor(placeholderColor);
+        Rect dst = new Rect();
+        for (DragGridLayout.Item item : items) {
+            if (item.getRow() >= rowCount || item.getCol() >= colCount) {
+                continue;
+            }
+            int lastRow = Math.min(item.getRow() + item.getRowSpan(), rowCount) - 1;
+            int lastCol = Math.min(item.getCol() + item.getColSpan(), colCount) - 1;
+            dst.set(cols.start(item.getCol()), rows.start(item.getRow()), cols.end(lastCol), rows.end(lastRow));
+
+            Bitmap tile = tileCache.get(item.getId());
+            if (tile != null && !tile.isRecycled()) {
+                canvas.drawBitmap(tile, null, dst, bitmapPaint);
+            } else if (tileRenderer != null) {
+                int save = canvas.save();
+                canvas.translate(dst.left, dst.top);
+                canvas.clipRect(0, 0, dst.width(), dst.height());
+                tileRenderer.renderTile(canvas, item, dst.width(), dst.height());
+                canvas.restoreToCount(save);
+            } else {
+                canvas.drawRect(dst, placeholderPaint);
+            }
+        }
+        return thumbnail;
+    }
+
+    /**
+     * 缩略图不再使用时放回复用池，之后不能再使用这个Bitmap
+     */
+    public void recycle(Bitmap thumbnail) {
+        if (thumbnail == null || thumbnail.isRecycled()) {
+            return;
+        }
+        synchronized (pool) {
+            if (pool.size() >= MAX_POOL_SIZE) {
+                pool.pollFirst().recycle();
+            }
+            pool.addLast(thumbnail);
+        }
+    }
+
+    private Bitmap obtain(int width, int height) {
+        synchronized (pool) {
+            for (Iterator<Bitmap> it = pool.iterator(); it.hasNext(); ) {
+                Bitmap bitmap = it.next();
+                if (bitmap.getWidth() == width && bitmap.getHeight() == height) {
+                    it.remove();
+                    bitmap.eraseColor(Color.TRANSPARENT);
+                    return bitmap;
+                }
+            }
+        }
+        return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+    }
+}
@@ -0,0 +1,249 @@
+package com.edhlily.draggrid;
+
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+
+import java.util.Arrays;
+
+/**
+ * 一组行或列的轨道尺寸
+ * <p>
+ * 每个轨道可以是固定尺寸或者按权重分配剩余空间，轨道起始位置保存在前缀和数组中，
+ * 取位置为O(1)，根据坐标查找轨道为O(log n)
+ */
+class GridTracks {
+    /**
+     * 轨道数量
+     */
+    private int count = 0;
+
+    /**
+     * 轨道间隔
+     */
+    private int spacing = 0;
+
+    /**
+     * 每个轨道的权重，固定尺寸的轨道忽略权重
+     */
+    private float[] weights = new float[0];
+
+    /**
+     * 每个轨道的固定尺寸，小于0表示按权重分配
+     */
+    private int[] fixedSizes = new int[0];
+
+    /**
+     * offsets[i] 为第i个轨道的起始位置，offsets[i + 1] - spacing 为第i个轨道的结束位置
+     */
+    private int[] offsets = new int[1];
+
+    /**
+     * 上次计算时的总长度
+     */
+    private int total = -1;
+
+    private boolean dirty = true;
+
+    GridTracks() {
+        setCount(1);
+    }
+
+    /**
+     * 复制数量、间隔、权重和固定尺寸
+     */
+    GridTracks copy() {
+        GridTracks result = new GridTracks();
+        result.setCount(count);
+        result.spacing = spacing;
+        System.arraycopy(weights, 0, result.weights, 0, count);
+        System.arraycopy(fixedSizes, 0, result.fixedSizes, 0, count);
+        result.dirty = true;
+        return result;
+    }
+
+    /**
+     * 按比例缩放固定尺寸，用于在更小的区域中绘制相同比例的轨道
+     */
+    void scaleFixedSizes(float factor) {
+        for (int i = 0; i < count; i++) {
+            if (fixedSizes[i] >= 0) {
+                fixedSizes[i] = Math.round(fixedSizes[i] * factor);
+            }
+        }
+        dirty = true;
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    void setCount(int count) {
+        count = Math.max(1, count);
+        if (count == this.count) {
+            return;
+        }
+        int old = this.count;
+        weights = Arrays.copyOf(weights, count);
+        fixedSizes = Arrays.copyOf(fixedSizes, count);
+        for (int i = old; i < count; i++) {
+            weights[i] = 1f;
+            fixedSizes[i] = -1;
+        }
+        offsets = new int[count + 1];
+        this.count = count;
+        dirty = true;
+    }
+
+    int getSpacing() {
+        return spacing;
+    }
+
+    void setSpacing(int spacing) {
+        if (this.spacing != spacing) {
+            this.spacing = spacing;
+            dirty = true;
+        }
+    }
+
+    float getWeight(int index) {
+        return weights[index];
+    }
+
+    void setWeight(int index, float weight) {
+        weights[index] = weight;
+        dirty = true;
+    }
+
+    /**
+     * 按顺序设置轨道权重，未指定的轨道权重为1
+     */
+    void setWeights(float... weights) {
+        for (int i = 0; i < count; i++) {
+            this.weights[i] = weights != null && i < weights.length ? weights[i] : 1f;
+        }
+        dirty = true;
+    }
+
+    int getFixedSize(int index) {
+        return fixedSizes[index];
+    }
+
+    /**
+     * @param size 固定尺寸，小于0表示按权重分配
+     */
+    void setFixedSize(int index, int size) {
+        fixedSizes[index] = size;
+        dirty = true;
+    }
+
+    /**
+     * 解析形如 "56dp,1,2" 的轨道描述，带单位(dp/px)的为固定尺寸，其余为权重
+     */
+    void parse(String spec, DisplayMetrics metrics) {
+        if (spec == null) {
+            return;
+        }
+        String[] parts = spec.split(",");
+        for (int i = 0; i < count; i++) {
+            weights[i] = 1f;
+            fixedSizes[i] = -1;
+            if (i >= parts.length) {
+                continue;
+            }
+            String part = parts[i].trim();
+            try {
+                if (part.endsWith("dp") || part.endsWith("dip")) {
+                    float value = Float.parseFloat(part.substring(0, part.lastIndexOf('d')));
+                    fixedSizes[i] = Math.round(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, value, metrics));
+                } else if (part.endsWith("px")) {
+                    fixedSizes[i] = Math.round(Float.parseFloat(part.substring(0, part.length() - 2)));
+                } else if (!part.isEmpty()) {
+                    weights[i] = Float.parseFloat(part);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid track size \"" + part + "\" in \"" + spec + "\"", e);
+            }
+        }
+        dirty = true;
+    }
+
+    /**
+     * 根据总长度计算前缀和，长度和配置都没有变化时不重新计算
+     */
+    void measure(int total) {
+        if (!dirty && total == this.total) {
+            return;
+        }
+        int available = total - (count - 1) * spacing;
+        float sumWeight = 0f;
+        for (int i = 0; i < count; i++) {
+            if (fixedSizes[i] >= 0) {
+                available -= fixedSizes[i];
+            } else {
+                sumWeight += weights[i];
+            }
+        }
+        available = Math.max(0, available);
+
+        offsets[0] = 0;
+        for (int i = 0; i < count; i++) {
+            int size;
+            if (fixedSizes[i] >= 0) {
+                size = fixedSizes[i];
+            } else if (sumWeight > 0f) {
+                size = (int) (available * weights[i] / sumWeight);
+            } else {
+                size = 0;
+            }
+            offsets[i + 1] = offsets[i] + size + spacing;
+        }
+        this.total = total;
+        dirty = false;
+    }
+
+    /**
+     * 轨道起始位置
+     */
+    int start(int index) {
+        return offsets[clamp(index)];
+    }
+
+    /**
+     * 轨道结束位置
+     */
+    int end(int index) {
+        return offsets[clamp(index) + 1] - spacing;
+    }
+
+    int size(int index) {
+        return end(index) - start(index);
+    }
+
+    /**
+     * 从index开始跨span个轨道(包含中间的间隔)的总长度
+     */
+    int spanSize(int index, int span) {
+        return end(index + span - 1) - start(index);
+    }
+
+    /**
+     * 二分查找坐标所在的轨道，落在间隔中时返回前一个轨道
+     */
+    int indexAt(int position) {
+        int low = 0;
+        int high = count - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (offsets[mid] <= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private int clamp(int index) {
+        return index < 0 ? 0 : index >= count ? count - 1 : index;
+    }
+}
@@ -0,0 +1,47 @@
+package com.edhlily.draggrid;
+
+/**
+ * 拖动时两个Item是否可以交换位置以及交换后的位置
+ * <p>
+ * DragGridLayout和DragGridLayoutManager使用相同的规则
+ */
+final class ReorderRules {
+
+    private ReorderRules() {
+    }
+
+    /**
+     * 跨度相同的两个Item直接交换；同一行且行高相同的相邻Item左右交换；同一列且宽度相同的相邻Item上下交换
+     *
+     * @param out 输出 {被交换Item的新row, 新col, 拖动Item的新row, 新col}
+     * @return 是否可以交换
+     */
+    static boolean resolve(int row, int col, int rowSpan, int colSpan,
+                           int otherRow, int otherCol, int otherRowSpan, int otherColSpan,
+                           int[] out) {
+        if (otherRowSpan == rowSpan && otherColSpan == colSpan) {
+            return set(out, row, col, otherRow, otherCol);
+        } else if (otherRowSpan == rowSpan && otherRow == row) {//同一行且行高一样
+            if (otherCol > col && col + colSpan == otherCol) { //在移动item的右边
+                return set(out, row, col, row, col + otherColSpan);
+            } else if (otherCol + otherColSpan == col) { //在移动item的左边
+                return set(out, otherRow, otherCol + colSpan, row, otherCol);
+            }
+        } else if (otherColSpan == colSpan && otherCol == col) {//同一列且宽一样
+            if (otherRow > row && row + rowSpan == otherRow) {//在移动item的下面
+                return set(out, row, col, row + otherRowSpan, col);
+            } else if (otherRow + otherRowSpan == row) {//在移动item的上面
+                return set(out, otherRow + rowSpan, otherCol, otherRow, col);
+            }
+        }
+        return false;
+    }
+
+    private static boolean set(int[] out, int otherRow, int otherCol, int row, int col) {
+        out[0] = otherRow;
+        out[1] = otherCol;
+        out[2] = row;
+        out[3] = col;
+        return true;
+    }
+}
@@ -0,0 +1,120 @@
+package com.edhlily.draggrid;
+
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 拖动开始时建立的交换候选表
+ * <p>
+ * 每个格子映射到占用它的Item，并预先按被拖动Item的跨度算出哪些Item可能被交换。
+ * 拖动过程中只需要查表，接受交换后只更新被交换Item占用的格子
+ */
+final class SwapCandidateTable {
+    private int rowCount;
+    private int colCount;
+    private int dragRowSpan;
+    private int dragColSpan;
+
+    /**
+     * 格子对应的Item序号，-1表示空
+     */
+    private int[] owners = new int[0];
+
+    private final List<View> views = new ArrayList<>();
+
+    /**
+     * 每个Item 4个值 {row, col, rowSpan, colSpan}
+     */
+    private int[] cells = new int[0];
+
+    /**
+     * 跨度是否满足交换规则的前提，和位置无关
+     */
+    private boolean[] candidates = new boolean[0];
+
+    /**
+     * @param views 参与交换的Item，不包括被拖动的Item
+     */
+    void build(int rowCount, int colCount, int dragRowSpan, int dragColSpan, List<View> views) {
+        this.rowCount = Math.max(0, rowCount);
+        this.colCount = Math.max(0, colCount);
+        this.dragRowSpan = dragRowSpan;
+        this.dragColSpan = dragColSpan;
+        int cellCount = this.rowCount * this.colCount;
+        if (owners.length < cellCount) {
+            owners = new int[cellCount];
+        }
+        Arrays.fill(owners, -1);
+        this.views.clear();
+        this.views.addAll(views);
+        if (cells.length < views.size() * 4) {
+            cells = new int[views.size() * 4];
+            candidates = new boolean[views.size()];
+        }
+        for (int i = 0; i < views.size(); i++) {
+            DragGridLayout.LayoutParams lp = (DragGridLayout.LayoutParams) views.get(i).getLayoutParams();
+            cells[i * 4] = lp.getRow();
+            cells[i * 4 + 1] = lp.getCol();
+            cells[i * 4 + 2] = lp.getRowSpan();
+            cells[i * 4 + 3] = lp.getColSpan();
+            candidates[i] = lp.getRowSpan() == dragRowSpan || lp.getColSpan() == dragColSpan;
+            fill(i, i);
+        }
+    }
+
+    void clear() {
+        views.clear();
+        Arrays.fill(owners, -1);
+    }
+
+    /**
+     * 格子上的Item序号，没有时返回-1
+     */
+    int findAt(int row, int col) {
+        if (row < 0 || col < 0 || row >= rowCount || col >= colCount) {
+            return -1;
+        }
+        return owners[row * colCount + col];
+    }
+
+    View getView(int index) {
+        return views.get(index);
+    }
+
+    /**
+     * 被拖动Item在(row, col)时和第index个Item的交换结果
+     *
+     * @param out 同{@link ReorderRules#resolve}
+     */
+    boolean resolve(int index, int row, int col, int[] out) {
+        return candidates[index] && ReorderRules.resolve(
+                row, col, dragRowSpan, dragColSpan,
+                cells[index * 4], cells[index * 4 + 1], cells[index * 4 + 2], cells[index * 4 + 3],
+                out);
+    }
+
+    /**
+     * 接受交换后移动第index个Item，只更新它原来和新占用的格子
+     */
+    void move(int index, int row, int col) {
+        fill(index, -1);
+        cells[index * 4] = row;
+        cells[index * 4 + 1] = col;
+        fill(index, index);
+    }
+
+    private void fill(int index, int value) {
+        int rowEnd = Math.min(rowCount, cells[index * 4] + cells[index * 4 + 2]);
+        int colEnd = Math.min(colCount, cells[index * 4 + 1] + cells[index * 4 + 3]);
+        for (int r = Math.max(0, cells[index * 4]); r < rowEnd; r++) {
+            for (int c = Math.max(0, cells[index * 4 + 1]); c < colEnd; c++) {
+                if (value >= 0 || owners[r * colCount + c] == index) {
+                    owners[r * colCount + c] = value;
+                }
+            }
+        }
+    }
+}
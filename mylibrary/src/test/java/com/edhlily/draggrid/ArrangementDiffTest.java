@@ -0,0 +1,64 @@
+package com.edhlily.draggrid;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class ArrangementDiffTest {
+
+    @Test
+    public void detectsRemovedInsertedAndChanged() {
+        long[] ids = {1, 2, 3};
+        int[] cells = {
+                0, 0, 1, 1, 0,
+                0, 1, 1, 1, 0,
+                1, 0, 1, 2, 0,
+        };
+        ArrangementDiff diff = ArrangementDiff.calculate(ids, cells, Arrays.asList(
+                new DragGridLayout.Item(1, 0, 0, 1, 1),
+                new DragGridLayout.Item(3, 1, 0, 1, 1),
+                new DragGridLayout.Item(4, 2, 0, 1, 1)
+        ), 7);
+        assertEquals(7, diff.version);
+        assertEquals(Collections.singletonList(2L), diff.removed);
+        assertEquals(1, diff.inserted.size());
+        assertEquals(4, diff.inserted.get(0).getId());
+        assertEquals(1, diff.changed.size());
+        assertEquals(3, diff.changed.get(0).getId());
+    }
+
+    @Test
+    public void sameArrangementIsEmpty() {
+        long[] ids = {-1, 5};
+        int[] cells = {
+                0, 0, 1, 1, 0,
+                0, 1, 2, 1, 2,
+        };
+        ArrangementDiff diff = ArrangementDiff.calculate(ids, cells, Arrays.asList(
+                new DragGridLayout.Item(5, 0, 1, 2, 1, 2),
+                new DragGridLayout.Item(-1, 0, 0, 1, 1)
+        ), 0);
+        assertTrue(diff.isEmpty());
+    }
+
+    @Test
+    public void pageChangeOnlyWhenItemHasPage() {
+        long[] ids = {1, 2};
+        int[] cells = {
+                0, 0, 1, 1, 1,
+                0, 1, 1, 1, 1,
+        };
+        ArrangementDiff diff = ArrangementDiff.calculate(ids, cells, Arrays.asList(
+                new DragGridLayout.Item(1, 0, 0, 1, 1, 0),
+                //没有指定页时保持当前页
+                new DragGridLayout.Item(2, 0, 1, 1, 1)
+        ), 0);
+        assertTrue(diff.removed.isEmpty());
+        assertTrue(diff.inserted.isEmpty());
+        assertEquals(1, diff.changed.size());
+        assertEquals(1, diff.changed.get(0).getId());
+    }
+}
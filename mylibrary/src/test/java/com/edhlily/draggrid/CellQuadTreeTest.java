@@ -0,0 +1,80 @@
+package com.edhlily.draggrid;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CellQuadTreeTest {
+
+    @Test
+    public void findAtAndIsFree() {
+        CellQuadTree tree = new CellQuadTree();
+        tree.put(1, 0, 0, 2, 2);
+        tree.put(2, 0, 2, 1, 1);
+        assertEquals(1, tree.findAt(1, 1, -1).id);
+        assertNull(tree.findAt(1, 1, 1));
+        assertNull(tree.findAt(1, 2, -1));
+        assertFalse(tree.isFree(0, 1, 1, 2, -1));
+        assertTrue(tree.isFree(1, 2, 2, 2, -1));
+        assertFalse(tree.isFree(-1, 0, 1, 1, -1));
+    }
+
+    @Test
+    public void moveAndRemove() {
+        CellQuadTree tree = new CellQuadTree();
+        tree.put(1, 0, 0, 1, 1);
+        tree.put(1, 5, 5, 1, 1);
+        assertEquals(1, tree.size());
+        assertNull(tree.findAt(0, 0, -1));
+        assertEquals(1, tree.findAt(5, 5, -1).id);
+        tree.remove(1);
+        assertEquals(0, tree.size());
+        assertNull(tree.findAt(5, 5, -1));
+    }
+
+    @Test
+    public void growsBeyondInitialSize() {
+        CellQuadTree tree = new CellQuadTree();
+        tree.put(1, 200, 300, 2, 3);
+        assertEquals(1, tree.findAt(201, 302, -1).id);
+    }
+
+    @Test
+    public void queryMatchesBruteForce() {
+        Random random = new Random(42);
+        CellQuadTree tree = new CellQuadTree();
+        int[][] cells = new int[200][];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = new int[]{random.nextInt(100), random.nextInt(100), 1 + random.nextInt(4), 1 + random.nextInt(4)};
+            tree.put(i, cells[i][0], cells[i][1], cells[i][2], cells[i][3]);
+        }
+        List<CellQuadTree.Entry> out = new ArrayList<>();
+        for (int n = 0; n < 100; n++) {
+            int row = random.nextInt(100);
+            int col = random.nextInt(100);
+            int rowSpan = 1 + random.nextInt(10);
+            int colSpan = 1 + random.nextInt(10);
+            Set<Long> expected = new HashSet<>();
+            for (int i = 0; i < cells.length; i++) {
+                if (cells[i][0] < row + rowSpan && row < cells[i][0] + cells[i][2]
+                        && cells[i][1] < col + colSpan && col < cells[i][1] + cells[i][3]) {
+                    expected.add((long) i);
+                }
+            }
+            out.clear();
+            tree.query(row, col, rowSpan, colSpan, out);
+            Set<Long> actual = new HashSet<>();
+            for (CellQuadTree.Entry e : out) {
+                actual.add(e.id);
+            }
+            assertEquals(expected, actual);
+            assertEquals(expected.isEmpty(), tree.isFree(row, col, rowSpan, colSpan, -1));
+        }
+    }
+}
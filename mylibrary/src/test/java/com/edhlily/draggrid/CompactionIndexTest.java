@@ -0,0 +1,83 @@
+package com.edhlily.draggrid;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CompactionIndexTest {
+
+    private static Map<String, Integer> targets(List<CompactionIndex.Entry<String>> moved) {
+        Map<String, Integer> result = new HashMap<>();
+        for (CompactionIndex.Entry<String> e : moved) {
+            result.put(e.item, e.target);
+        }
+        return result;
+    }
+
+    @Test
+    public void verticalSkyline() {
+        CompactionIndex<String> index = new CompactionIndex<>();
+        index.put("a", 0, 2, 0, 1, 1);
+        index.put("b", 0, 0, 1, 1, 1);
+        index.put("c", 0, 3, 1, 1, 2);
+        Map<String, Integer> moved = targets(index.compact(0, 0, 3, null));
+        assertEquals(2, moved.size());
+        assertEquals(0, (int) moved.get("a"));
+        //第1列被b占用到第1行
+        assertEquals(1, (int) moved.get("c"));
+    }
+
+    @Test
+    public void itemsBeforeFromOnlyRaiseSkyline() {
+        CompactionIndex<String> index = new CompactionIndex<>();
+        index.put("a", 0, 1, 0, 1, 1);
+        index.put("b", 0, 4, 0, 1, 1);
+        Map<String, Integer> moved = targets(index.compact(0, 2, 1, null));
+        assertFalse(moved.containsKey("a"));
+        assertEquals(2, (int) moved.get("b"));
+    }
+
+    @Test
+    public void incrementalUpdates() {
+        CompactionIndex<String> index = new CompactionIndex<>();
+        index.put("a", 0, 3, 0, 1, 1);
+        index.put("b", 0, 1, 0, 1, 1);
+        assertEquals(0, (int) targets(index.compact(0, 0, 1, null)).get("b"));
+        //a移到b前面之后顺序跟着变化
+        index.put("a", 0, 0, 0, 1, 1);
+        assertTrue(index.compact(0, 0, 1, null).isEmpty());
+        index.remove("a");
+        assertEquals(1, index.size());
+        assertEquals(0, (int) targets(index.compact(0, 0, 1, null)).get("b"));
+    }
+
+    @Test
+    public void pagesAreIndependent() {
+        CompactionIndex<String> index = new CompactionIndex<>();
+        index.put("a", 0, 0, 0, 1, 1);
+        index.put("b", 1, 2, 0, 1, 1);
+        Map<String, Integer> moved = targets(index.compact(1, 0, 1, null));
+        assertEquals(1, moved.size());
+        assertEquals(0, (int) moved.get("b"));
+    }
+
+    @Test
+    public void horizontalAndFilter() {
+        CompactionIndex<String> index = new CompactionIndex<>();
+        index.put("a", 0, 0, 2, 1, 1);
+        index.put("b", 0, 1, 3, 1, 1);
+        index.setVertical(false);
+        Map<String, Integer> moved = targets(index.compact(0, 0, 2, new CompactionIndex.MoveFilter<String>() {
+            @Override
+            public boolean canMove(CompactionIndex.Entry<String> entry, int target) {
+                return !entry.item.equals("b");
+            }
+        }));
+        assertEquals(1, moved.size());
+        assertEquals(0, (int) moved.get("a"));
+    }
+}
@@ -0,0 +1,107 @@
+package com.edhlily.draggrid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GridOccupancyTest {
+
+    @Test
+    public void occupyAndRelease() {
+        GridOccupancy occupancy = new GridOccupancy(4, 4);
+        assertTrue(occupancy.isEmpty());
+        occupancy.occupy(1, 1, 2, 2);
+        assertFalse(occupancy.isEmpty());
+        assertTrue(occupancy.isOccupied(2, 2));
+        assertFalse(occupancy.isOccupied(0, 0));
+        assertFalse(occupancy.isFree(0, 0, 2, 2));
+        assertTrue(occupancy.isFree(0, 0, 1, 4));
+        occupancy.release(1, 1, 1, 2);
+        assertTrue(occupancy.isFree(1, 0, 1, 4));
+        assertFalse(occupancy.isFree(2, 1, 1, 1));
+    }
+
+    @Test
+    public void outOfBoundsIsNotFree() {
+        GridOccupancy occupancy = new GridOccupancy(3, 3);
+        assertFalse(occupancy.isFree(-1, 0, 1, 1));
+        assertFalse(occupancy.isFree(2, 2, 2, 1));
+        assertFalse(occupancy.isFree(0, 0, 0, 1));
+    }
+
+    @Test
+    public void spansWordBoundary() {
+        //10 x 10 的区域跨越多个long
+        GridOccupancy occupancy = new GridOccupancy(10, 10);
+        occupancy.occupy(6, 3, 1, 2);
+        assertFalse(occupancy.isFree(6, 4, 1, 1));
+        assertTrue(occupancy.isFree(6, 5, 1, 5));
+        assertTrue(occupancy.isFree(0, 0, 6, 10));
+    }
+
+    @Test
+    public void findFirstFreeIsRowMajor() {
+        GridOccupancy occupancy = new GridOccupancy(3, 3);
+        occupancy.occupy(0, 0, 1, 2);
+        assertEquals(2, occupancy.findFirstFree(1, 1));
+        assertEquals(3, occupancy.findFirstFree(1, 2));
+        occupancy.occupy(0, 0, 3, 3);
+        assertEquals(-1, occupancy.findFirstFree(1, 1));
+    }
+
+    @Test
+    public void findFirstFreeSkipsExcluded() {
+        GridOccupancy occupancy = new GridOccupancy(2, 3);
+        GridOccupancy excluded = new GridOccupancy(2, 3);
+        excluded.occupy(0, 0, 1, 3);
+        assertEquals(3, occupancy.findFirstFree(1, 1, excluded));
+        //超出excluded的部分也不能放置
+        GridOccupancy smaller = new GridOccupancy(1, 3);
+        assertEquals(-1, occupancy.findFirstFree(2, 1, smaller));
+    }
+
+    @Test
+    public void setRowCountKeepsExistingRows() {
+        GridOccupancy occupancy = new GridOccupancy(2, 3);
+        occupancy.occupy(1, 1, 1, 1);
+        occupancy.setRowCount(5);
+        assertTrue(occupancy.isOccupied(1, 1));
+        assertTrue(occupancy.isFree(2, 0, 3, 3));
+        occupancy.setRowCount(1);
+        occupancy.setRowCount(2);
+        assertFalse(occupancy.isOccupied(1, 1));
+    }
+
+    @Test
+    public void addAllMergesOccupiedCells() {
+        GridOccupancy a = new GridOccupancy(2, 2);
+        GridOccupancy b = new GridOccupancy(2, 2);
+        a.occupy(0, 0, 1, 1);
+        b.occupy(1, 1, 1, 1);
+        a.addAll(b);
+        assertTrue(a.isOccupied(0, 0));
+        assertTrue(a.isOccupied(1, 1));
+        assertFalse(a.isOccupied(0, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addAllRejectsDifferentSize() {
+        new GridOccupancy(2, 2).addAll(new GridOccupancy(2, 3));
+    }
+
+    @Test
+    public void resizeAndCopy() {
+        GridOccupancy occupancy = new GridOccupancy(2, 2);
+        occupancy.occupy(0, 1, 1, 1);
+        GridOccupancy resized = occupancy.resize(3, 3, true);
+        assertTrue(resized.isOccupied(0, 1));
+        assertFalse(resized.isOccupied(0, 0));
+        assertTrue(resized.isOccupied(2, 2));
+        assertTrue(resized.isOccupied(0, 2));
+
+        GridOccupancy copy = occupancy.copy();
+        copy.occupy(1, 0, 1, 1);
+        assertFalse(occupancy.isOccupied(1, 0));
+        assertTrue(copy.isOccupied(0, 1));
+    }
+}
@@ -0,0 +1,72 @@
+package com.edhlily.draggrid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GridTracksTest {
+
+    @Test
+    public void uniformTracks() {
+        GridTracks tracks = new GridTracks();
+        tracks.setCount(3);
+        tracks.setSpacing(10);
+        tracks.measure(120);
+        assertEquals(0, tracks.start(0));
+        assertEquals(33, tracks.end(0));
+        assertEquals(43, tracks.start(1));
+        assertEquals(86, tracks.start(2));
+        assertEquals(33 * 2 + 10, tracks.spanSize(0, 2));
+    }
+
+    @Test
+    public void indexAt() {
+        GridTracks tracks = new GridTracks();
+        tracks.setCount(3);
+        tracks.setSpacing(10);
+        tracks.measure(120);
+        assertEquals(0, tracks.indexAt(-5));
+        assertEquals(0, tracks.indexAt(0));
+        //落在间隔中时返回前一个轨道
+        assertEquals(0, tracks.indexAt(40));
+        assertEquals(1, tracks.indexAt(43));
+        assertEquals(1, tracks.indexAt(85));
+        assertEquals(2, tracks.indexAt(86));
+        assertEquals(2, tracks.indexAt(1000));
+    }
+
+    @Test
+    public void fixedSizesAndWeights() {
+        GridTracks tracks = new GridTracks();
+        tracks.setCount(3);
+        //dp需要DisplayMetrics，这里只使用px和权重
+        tracks.parse("10px,1,3", null);
+        tracks.measure(110);
+        assertEquals(10, tracks.size(0));
+        assertEquals(25, tracks.size(1));
+        assertEquals(75, tracks.size(2));
+        assertEquals(1, tracks.indexAt(10));
+        assertEquals(2, tracks.indexAt(35));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseRejectsInvalidSize() {
+        GridTracks tracks = new GridTracks();
+        tracks.setCount(2);
+        tracks.parse("1,abc", null);
+    }
+
+    @Test
+    public void copyIsIndependent() {
+        GridTracks tracks = new GridTracks();
+        tracks.setCount(2);
+        tracks.setFixedSize(0, 40);
+        GridTracks copy = tracks.copy();
+        copy.scaleFixedSizes(0.5f);
+        assertEquals(40, tracks.getFixedSize(0));
+        assertEquals(20, copy.getFixedSize(0));
+        copy.measure(100);
+        assertEquals(20, copy.size(0));
+        assertEquals(80, copy.size(1));
+    }
+}
@@ -0,0 +1,46 @@
+package com.edhlily.draggrid;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ReorderRulesTest {
+
+    private final int[] out = new int[4];
+
+    @Test
+    public void sameSpanSwaps() {
+        assertTrue(ReorderRules.resolve(0, 0, 1, 2, 3, 1, 1, 2, out));
+        assertArrayEquals(new int[]{0, 0, 3, 1}, out);
+    }
+
+    @Test
+    public void sameRowNeighbours() {
+        //被交换的Item在右边
+        assertTrue(ReorderRules.resolve(1, 0, 1, 1, 1, 1, 1, 2, out));
+        assertArrayEquals(new int[]{1, 0, 1, 2}, out);
+        //被交换的Item在左边
+        assertTrue(ReorderRules.resolve(1, 2, 1, 1, 1, 0, 1, 2, out));
+        assertArrayEquals(new int[]{1, 1, 1, 0}, out);
+    }
+
+    @Test
+    public void sameColumnNeighbours() {
+        //被交换的Item在下面
+        assertTrue(ReorderRules.resolve(0, 1, 1, 1, 1, 1, 2, 1, out));
+        assertArrayEquals(new int[]{0, 1, 2, 1}, out);
+        //被交换的Item在上面
+        assertTrue(ReorderRules.resolve(2, 1, 1, 1, 0, 1, 2, 1, out));
+        assertArrayEquals(new int[]{1, 1, 0, 1}, out);
+    }
+
+    @Test
+    public void rejectsUnrelatedItems() {
+        //同一行但不相邻
+        assertFalse(ReorderRules.resolve(0, 0, 1, 1, 0, 2, 1, 2, out));
+        //跨度都不同
+        assertFalse(ReorderRules.resolve(0, 0, 1, 1, 0, 1, 2, 2, out));
+        //行高相同但不在同一行
+        assertFalse(ReorderRules.resolve(0, 0, 1, 1, 1, 1, 1, 2, out));
+    }
+}
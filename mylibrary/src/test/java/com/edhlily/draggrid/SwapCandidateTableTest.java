@@ -0,0 +1,76 @@
+package com.edhlily.draggrid;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SwapCandidateTableTest {
+
+    /**
+     * 只提供LayoutParams的View，依赖unitTests.returnDefaultValues
+     *
+     * @param cells 每个Item 4个值 {row, col, rowSpan, colSpan}
+     */
+    private static List<View> views(int... cells) {
+        List<View> views = new ArrayList<>();
+        for (int i = 0; i < cells.length; i += 4) {
+            final DragGridLayout.LayoutParams lp = new DragGridLayout.LayoutParams(
+                    cells[i], cells[i + 1], cells[i + 2], cells[i + 3]);
+            views.add(new View(null) {
+                @Override
+                public ViewGroup.LayoutParams getLayoutParams() {
+                    return lp;
+                }
+            });
+        }
+        return views;
+    }
+
+    @Test
+    public void mapsCellsToItems() {
+        SwapCandidateTable table = new SwapCandidateTable();
+        List<View> views = views(
+                0, 0, 1, 2,
+                1, 2, 2, 1);
+        table.build(3, 3, 1, 1, views);
+        assertEquals(0, table.findAt(0, 1));
+        assertEquals(1, table.findAt(2, 2));
+        assertSame(views.get(1), table.getView(1));
+        assertEquals(-1, table.findAt(1, 1));
+        assertEquals(-1, table.findAt(3, 0));
+        assertEquals(-1, table.findAt(0, -1));
+    }
+
+    @Test
+    public void resolveUsesReorderRules() {
+        SwapCandidateTable table = new SwapCandidateTable();
+        table.build(3, 3, 1, 1, views(
+                0, 1, 1, 2,
+                2, 0, 2, 2));
+        int[] out = new int[4];
+        //行高相同且在右边相邻
+        assertTrue(table.resolve(0, 0, 0, out));
+        assertArrayEquals(new int[]{0, 0, 0, 2}, out);
+        //跨度都不同，不是候选
+        assertFalse(table.resolve(1, 1, 0, out));
+    }
+
+    @Test
+    public void moveUpdatesOnlyMovedItem() {
+        SwapCandidateTable table = new SwapCandidateTable();
+        table.build(2, 3, 1, 1, views(
+                0, 0, 1, 1,
+                0, 1, 1, 1));
+        table.move(0, 1, 2);
+        assertEquals(-1, table.findAt(0, 0));
+        assertEquals(0, table.findAt(1, 2));
+        assertEquals(1, table.findAt(0, 1));
+        assertEquals(-1, table.findAt(1, 0));
+    }
+}